@@ -0,0 +1,58 @@
+package org.repodriller.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.repodriller.util.RepositoryGenerator;
+
+/**
+ * The repositories the benchmarks run on: the unzipped <code>test-repos</code> of the project (see the
+ * <code>repodriller.testRepos</code> property), and synthetic ones that are generated on first use.
+ */
+class BenchmarkRepositories {
+
+    static final String SYNTHETIC = "synthetic";
+
+    private BenchmarkRepositories() {
+    }
+
+    /**
+     * @param name The name of a test repository, e.g., <code>git-1</code>, or {@value #SYNTHETIC}
+     * @return The path of the repository
+     */
+    static String path(String name) throws IOException {
+        if (name.equals(SYNTHETIC)) return synthetic(2000, 200, 5);
+
+        File repo = new File(System.getProperty("repodriller.testRepos", "../test-repos"), name);
+        if (!new File(repo, ".git").isDirectory())
+            throw new IllegalStateException(repo.getAbsolutePath() + " is not a Git repository; unzip the test repositories first");
+        return repo.getAbsolutePath();
+    }
+
+    /**
+     * Generates a repository with topic branches and renames in a directory that is deleted when the JVM exits.  It
+     * is always the same for the same arguments.
+     */
+    static String synthetic(int commits, int files, int filesPerCommit) throws IOException {
+        File dir = Files.createTempDirectory("repodriller-benchmark").toFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteQuietly(dir)));
+
+        return new RepositoryGenerator()
+                .withCommits(commits)
+                .withFiles(files)
+                .withFilesPerCommit(filesPerCommit)
+                .withBranches(20, 2)
+                .withRenameRate(0.05)
+                .withDevelopers(20)
+                .generate(dir);
+    }
+
+    private static void deleteQuietly(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteQuietly(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,58 @@
+package org.repodriller.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.persistence.csv.BufferedCSVFile;
+import org.repodriller.persistence.csv.CSVFile;
+
+/**
+ * Writing typical rows (a hash, a path, a name with a comma and two numbers).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CSVFileBenchmark {
+
+    private File file;
+    private PersistenceMechanism csv;
+    private PersistenceMechanism bufferedCsv;
+    private long row;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("repodriller-benchmark", ".csv").toFile();
+        csv = new CSVFile(file.getPath());
+        bufferedCsv = new BufferedCSVFile(file.getPath() + ".buffered");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        csv.close();
+        bufferedCsv.close();
+        file.delete();
+        new File(file.getPath() + ".buffered").delete();
+    }
+
+    @Benchmark
+    public void write() {
+        csv.write("866e997a9e44cb4ddd9e00efe49361420aff2559", "src/main/java/File.java", "Aniche, Maurício", row++, 42);
+    }
+
+    @Benchmark
+    public void writeBuffered() {
+        bufferedCsv.write("866e997a9e44cb4ddd9e00efe49361420aff2559", "src/main/java/File.java", "Aniche, Maurício", row++, 42);
+    }
+}
@@ -0,0 +1,81 @@
+package org.repodriller.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.repodriller.domain.DiffBlock;
+import org.repodriller.domain.DiffParser;
+import org.repodriller.domain.Modification;
+import org.repodriller.domain.ModificationType;
+
+/**
+ * Parsing diffs and counting their lines, on generated diffs of a given number of lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffBenchmark {
+
+    @Param({ "100", "10000" })
+    public int lines;
+
+    private String diff;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(lines);
+        StringBuilder text = new StringBuilder("diff --git a/A.java b/A.java\nindex 0000000..1111111 100644\n"
+                + "--- a/A.java\n+++ b/A.java\n");
+        int oldLine = 1;
+        int newLine = 1;
+        int written = 0;
+        int hunks = 0;
+        while (written < lines) {
+            int blockLines = Math.min(lines - written, 10 + random.nextInt(40));
+            StringBuilder block = new StringBuilder();
+            int oldLines = 0;
+            int newLines = 0;
+            for (int i = 0; i < blockLines; i++) {
+                char type = " +-".charAt(random.nextInt(3));
+                if (type != '+') oldLines++;
+                if (type != '-') newLines++;
+                block.append(type).append("    int field").append(i).append(" = ").append(random.nextInt()).append(";\n");
+            }
+            text.append("@@ -").append(oldLine).append(',').append(oldLines)
+                    .append(" +").append(newLine).append(',').append(newLines).append(" @@\n").append(block);
+            oldLine += oldLines + 10;
+            newLine += newLines + 10;
+            written += blockLines;
+            hunks++;
+        }
+        diff = text.toString();
+
+        // the parser skips the header, so a malformed one would hide the first hunk
+        if (new DiffParser(diff).getBlocks().size() != hunks)
+            throw new IllegalStateException("the generated diff does not parse into " + hunks + " hunks");
+    }
+
+    @Benchmark
+    public void parseDiff(Blackhole blackhole) {
+        for (DiffBlock block : new DiffParser(diff).getBlocks()) {
+            blackhole.consume(block.getLinesInOldFile());
+            blackhole.consume(block.getLinesInNewFile());
+        }
+    }
+
+    @Benchmark
+    public int countLines() {
+        Modification m = new Modification("A.java", "A.java", ModificationType.MODIFY, diff, "");
+        return m.getAdded() + m.getRemoved();
+    }
+}
@@ -0,0 +1,83 @@
+package org.repodriller.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Modification;
+import org.repodriller.scm.GitRepository;
+
+/**
+ * Reading commits from a repository, one after the other, like a mining run does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GitRepositoryBenchmark {
+
+    @Param({ "git-1", "git-4", BenchmarkRepositories.SYNTHETIC })
+    public String repository;
+
+    private String path;
+    private GitRepository git;
+    private List<String> hashes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        path = BenchmarkRepositories.path(repository);
+        git = new GitRepository(path);
+        hashes = git.getChangeSets().stream().map(ChangeSet::getId).collect(Collectors.toList());
+    }
+
+    private String nextHash() {
+        String hash = hashes.get(next);
+        next = (next + 1) % hashes.size();
+        return hash;
+    }
+
+    /**
+     * The metadata and the changed paths of a commit.
+     */
+    @Benchmark
+    public int getCommit() {
+        return git.getCommit(nextHash()).getModifications().size();
+    }
+
+    /**
+     * A commit with the diffs and the source code of all its files.
+     */
+    @Benchmark
+    public void getCommitWithContent(Blackhole blackhole) {
+        Commit commit = git.getCommit(nextHash());
+        for (Modification m : commit.getModifications()) {
+            blackhole.consume(m.getDiff());
+            blackhole.consume(m.getSourceCode());
+        }
+    }
+
+    /**
+     * The branches of a commit in a fresh repository, which includes indexing the branches once.
+     */
+    @Benchmark
+    public int getBranches() {
+        return new GitRepository(path).getCommit(nextHash()).getBranches().size();
+    }
+
+    @Benchmark
+    public int getChangeSets() {
+        return git.getChangeSets().size();
+    }
+}
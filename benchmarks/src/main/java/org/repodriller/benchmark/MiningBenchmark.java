@@ -0,0 +1,67 @@
+package org.repodriller.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Modification;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.scm.CommitVisitor;
+import org.repodriller.scm.GitRepository;
+import org.repodriller.scm.SCMRepository;
+
+/**
+ * A whole mining run with a visitor that reads the line counts of every modification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MiningBenchmark {
+
+    @Param({ "git-1", BenchmarkRepositories.SYNTHETIC })
+    public String repository;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        path = BenchmarkRepositories.path(repository);
+    }
+
+    @Benchmark
+    public void mine() {
+        new RepositoryMining()
+                .in(GitRepository.singleProject(path))
+                .through(Commits.all())
+                .withThreads(threads)
+                .process(new LineCountVisitor())
+                .mine();
+    }
+
+    private static class LineCountVisitor implements CommitVisitor {
+        @Override
+        public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+            for (Modification m : commit.getModifications()) {
+                writer.write(commit.getHash(), m.getFileName(), m.getAdded(), m.getRemoved());
+            }
+        }
+
+        @Override
+        public String name() {
+            return "line-counts";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.repodriller;
+
+import org.repodriller.domain.ChangeSet;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Processes a slice of a list of change sets in a {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * Slices larger than the batch size are split in halves, which end up in the deque of the worker that split them.
+ * Idle workers steal the oldest (and therefore largest) pending slices from busy workers, so a few expensive commits
+ * do not leave the other workers idle the way a static partitioning of the commit list does.
+ */
+class ChangeSetTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ChangeSet> changeSets;
+    private final int from;
+    private final int to;
+    private final int batchSize;
+    private final Consumer<ChangeSet> processor;
+
+    /**
+     * @param changeSets A random-access list of change sets
+     * @param from       Index of the first change set to process (inclusive)
+     * @param to         Index of the last change set to process (exclusive)
+     * @param batchSize  Maximum number of change sets that are processed without splitting the slice any further
+     * @param processor  Called for each change set of the slice, in list order
+     */
+    ChangeSetTask(List<ChangeSet> changeSets, int from, int to, int batchSize, Consumer<ChangeSet> processor) {
+        this.changeSets = changeSets;
+        this.from = from;
+        this.to = to;
+        this.batchSize = Math.max(1, batchSize);
+        this.processor = processor;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= batchSize) {
+            for (int i = from; i < to; i++) {
+                processor.accept(changeSets.get(i));
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChangeSetTask(changeSets, from, middle, batchSize, processor),
+                    new ChangeSetTask(changeSets, middle, to, batchSize, processor));
+        }
+    }
+}
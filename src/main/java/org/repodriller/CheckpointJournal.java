@@ -0,0 +1,194 @@
+package org.repodriller;
+
+import org.repodriller.scm.CommitVisitor;
+import org.repodriller.scm.SCMRepository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Records which commits each visitor has finished, so an interrupted or repeated mining run can skip them.
+ * <p>
+ * The journal is a text file with one tab-separated record per line:
+ * <pre>
+ * D  repository  visitor  commit    the visitor has processed (or filtered out) the commit
+ * H  repository  visitor  head      the visitor has finished a run over the repository, whose HEAD was the given commit
+ * </pre>
+ * The records are kept in memory until a {@link #checkpoint(Runnable)} has flushed the writers of the visitors, so
+ * the journal never lists a commit whose rows are still in a buffer.  A run that dies repeats the commits since the
+ * last checkpoint.
+ * <p>
+ * In incremental runs, the D records that precede the H record of their visitor are not kept: the commits up to the
+ * head are done anyway, see {@link #setAddedSinceHead(SCMRepository, CommitVisitor, Set)}.
+ */
+class CheckpointJournal implements Closeable {
+
+    private static final String DONE = "D";
+    private static final String HEAD = "H";
+    private static final int COMMITS_PER_CHECKPOINT = 1000;
+
+    private final Map<String, Map<String, Set<String>>> doneCommits = new HashMap<>();
+    private final Map<String, Map<String, String>> heads = new HashMap<>();
+    private final Map<String, Map<String, Set<String>>> addedSinceHead = new HashMap<>();
+    private final boolean incremental;
+    private final Writer out;
+    private final Object checkpointLock = new Object();
+    private List<String> pendingRecords = new ArrayList<>();
+    private int commitsSinceCheckpoint;
+
+    /**
+     * @param file        The journal file
+     * @param resume      If <code>true</code>, the records of earlier runs are read and kept; otherwise, the journal is
+     *                    started over
+     * @param incremental If <code>true</code>, the commits up to the head of a finished run are not listed one by one
+     */
+    CheckpointJournal(File file, boolean resume, boolean incremental) throws IOException {
+        this.incremental = incremental;
+        boolean endsWithNewLine = true;
+        if (resume && file.exists()) endsWithNewLine = read(file);
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, resume), StandardCharsets.UTF_8));
+        if (!endsWithNewLine) out.write("\n");
+    }
+
+    /**
+     * @return <code>false</code> if the file does not end with a line break, as the last record was cut off
+     */
+    private boolean read(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] record = line.split("\t");
+                // A crash may leave a truncated last line behind
+                if (record.length != 4) continue;
+
+                if (record[0].equals(DONE)) doneCommits(record[1], record[2]).add(record[3]);
+                else if (record[0].equals(HEAD)) finished(record[1], record[2], record[3]);
+            }
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() == 0) return true;
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the visitor has processed all commits of the repository up to its current HEAD
+     */
+    synchronized boolean isUpToDate(SCMRepository repo, CommitVisitor visitor) {
+        return repo.getHeadCommit().equals(getHead(repo, visitor));
+    }
+
+    /**
+     * @return The HEAD of the repository when the visitor last finished a run over it, or <code>null</code>
+     */
+    synchronized String getHead(SCMRepository repo, CommitVisitor visitor) {
+        Map<String, String> headsOfRepo = heads.get(key(repo.getPath()));
+        return headsOfRepo == null ? null : headsOfRepo.get(key(visitor.name()));
+    }
+
+    /**
+     * Tells an incremental journal which commits were added since {@link #getHead(SCMRepository, CommitVisitor)}; all
+     * other commits count as done for the visitor.  Forgotten once the visitor has finished the repository.
+     */
+    synchronized void setAddedSinceHead(SCMRepository repo, CommitVisitor visitor, Set<String> commits) {
+        addedSinceHead.computeIfAbsent(key(repo.getPath()), r -> new HashMap<>()).put(key(visitor.name()), commits);
+    }
+
+    synchronized boolean isDone(SCMRepository repo, CommitVisitor visitor, String commit) {
+        if (doneCommits(key(repo.getPath()), key(visitor.name())).contains(commit)) return true;
+
+        Map<String, Set<String>> addedToRepo = addedSinceHead.get(key(repo.getPath()));
+        Set<String> added = addedToRepo == null ? null : addedToRepo.get(key(visitor.name()));
+        return added != null && !added.contains(commit);
+    }
+
+    /**
+     * @return <code>true</code> if it is time for a {@link #checkpoint(Runnable)}
+     */
+    synchronized boolean done(SCMRepository repo, Collection<CommitVisitor> visitors, String commit) {
+        for (CommitVisitor visitor : visitors) {
+            doneCommits(key(repo.getPath()), key(visitor.name())).add(commit);
+            pendingRecords.add(record(DONE, repo.getPath(), visitor.name(), commit));
+        }
+        if (++commitsSinceCheckpoint < COMMITS_PER_CHECKPOINT) return false;
+        commitsSinceCheckpoint = 0;
+        return true;
+    }
+
+    /**
+     * Records that the visitors have finished the repository.  Since the H record supersedes the D records before
+     * it, the commits outside the history of the head (e.g., on other branches) are recorded again.  Like the
+     * commits, this is written by the next {@link #checkpoint(Runnable)}.
+     *
+     * @param outsideHead The commits that are not in the history of the HEAD of the repository
+     */
+    synchronized void finished(SCMRepository repo, Collection<CommitVisitor> visitors, Set<String> outsideHead) {
+        for (CommitVisitor visitor : visitors) {
+            List<String> stillDone = new ArrayList<>(doneCommits(key(repo.getPath()), key(visitor.name())));
+            stillDone.retainAll(outsideHead);
+
+            finished(repo.getPath(), visitor.name(), repo.getHeadCommit());
+            pendingRecords.add(record(HEAD, repo.getPath(), visitor.name(), repo.getHeadCommit()));
+            for (String commit : stillDone) {
+                if (incremental) doneCommits(key(repo.getPath()), key(visitor.name())).add(commit);
+                pendingRecords.add(record(DONE, repo.getPath(), visitor.name(), commit));
+            }
+        }
+    }
+
+    private void finished(String repo, String visitor, String head) {
+        heads.computeIfAbsent(key(repo), r -> new HashMap<>()).put(key(visitor), head);
+        if (!incremental) return;
+
+        // the head stands for the commits in its history, so their records are not needed anymore
+        doneCommits(key(repo), key(visitor)).clear();
+        Map<String, Set<String>> addedToRepo = addedSinceHead.get(key(repo));
+        if (addedToRepo != null) addedToRepo.remove(key(visitor));
+    }
+
+    /**
+     * Appends the records of the commits that are done so far, after flushing the writers that hold their rows.
+     * If the writers fail, the records are dropped, so the next run repeats these commits.
+     *
+     * @param flushWriters Flushes the writers of the visitors
+     */
+    void checkpoint(Runnable flushWriters) throws IOException {
+        synchronized (checkpointLock) {
+            List<String> records;
+            synchronized (this) {
+                records = pendingRecords;
+                pendingRecords = new ArrayList<>();
+            }
+
+            // the rows of these records were written before they were recorded, so the flush covers them
+            flushWriters.run();
+
+            synchronized (this) {
+                for (String record : records) {
+                    out.write(record);
+                }
+                out.flush();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private Set<String> doneCommits(String repo, String visitor) {
+        return doneCommits.computeIfAbsent(repo, r -> new HashMap<>()).computeIfAbsent(visitor, v -> new HashSet<>());
+    }
+
+    private static String record(String type, String repo, String visitor, String commit) {
+        return type + "\t" + key(repo) + "\t" + key(visitor) + "\t" + commit + "\n";
+    }
+
+    private static String key(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -1,10 +1,19 @@
 package org.repodriller;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.repodriller.domain.Commit;
+import org.repodriller.metrics.Metrics;
+import org.repodriller.metrics.Timer;
+import org.repodriller.persistence.AsyncPersistence;
+import org.repodriller.persistence.NoPersistence;
 import org.repodriller.persistence.PersistenceMechanism;
 import org.repodriller.persistence.csv.CSVFileFormatException;
 import org.repodriller.scm.CommitVisitor;
@@ -13,11 +22,13 @@ import org.repodriller.scm.SCMRepository;
 public class CommitVisitorIterator {
 
 	private Map<CommitVisitor, PersistenceMechanism> visitors;
+	private Map<CommitVisitor, Timer> timers;
 	private Logger log;
 	
 	public CommitVisitorIterator(Logger log) {
 		this.log = log;
 		visitors = new HashMap<CommitVisitor, PersistenceMechanism>();
+		timers = new HashMap<CommitVisitor, Timer>();
 	}
 
 	void initializeVisitors(SCMRepository repo) {
@@ -36,10 +47,16 @@ public class CommitVisitorIterator {
 	}
 
 	void processCommit(SCMRepository repo, Commit commit) {
+		processCommit(repo, commit, visitors.keySet());
+	}
+
+	void processCommit(SCMRepository repo, Commit commit, Collection<CommitVisitor> only) {
 		for(Map.Entry<CommitVisitor, PersistenceMechanism> entry : visitors.entrySet()) {
 			CommitVisitor visitor = entry.getKey();
 			PersistenceMechanism writer = entry.getValue();
+			if(!only.contains(visitor)) continue;
 
+			long start = System.nanoTime();
 			try {
 				log.info("-> Processing " + commit.getHash() + " with " + visitor.name());
 				visitor.process(repo, commit, writer);
@@ -49,6 +66,8 @@ public class CommitVisitorIterator {
 			} catch (Exception e) {
 				log.error("error processing #" + commit.getHash() + " in " + repo.getPath() + 
 						", processor=" + visitor.name() + ", error=" + e.getMessage(), e);
+			} finally {
+				timers.get(visitor).stop(start);
 			}
 		}
 	}
@@ -68,6 +87,12 @@ public class CommitVisitorIterator {
 		}
 	}
 	
+	void flushAllPersistence() {
+		for(PersistenceMechanism persist : visitors.values()) {
+			persist.flush();
+		}
+	}
+
 	void closeAllPersistence() {
 		for(PersistenceMechanism persist : visitors.values()) {
 			persist.close();
@@ -80,8 +105,44 @@ public class CommitVisitorIterator {
 		}
 	}
 
+	/**
+	 * Wraps every writer (except {@link NoPersistence}) in an {@link AsyncPersistence}.  Visitors that share a writer
+	 * keep sharing it.
+	 *
+	 * @return The new writers
+	 */
+	List<AsyncPersistence> writeAsynchronously() {
+		Map<PersistenceMechanism, AsyncPersistence> wrapped = new IdentityHashMap<>();
+		for(Map.Entry<CommitVisitor, PersistenceMechanism> entry : visitors.entrySet()) {
+			PersistenceMechanism writer = entry.getValue();
+			if(writer instanceof NoPersistence || writer instanceof AsyncPersistence) continue;
+
+			entry.setValue(wrapped.computeIfAbsent(writer, AsyncPersistence::new));
+		}
+		return new ArrayList<>(wrapped.values());
+	}
+
+	/**
+	 * Wraps every writer (except {@link NoPersistence}) in a {@link MeteredPersistence}.  Visitors that share a writer
+	 * keep sharing it.
+	 */
+	void meterWrites() {
+		Map<PersistenceMechanism, MeteredPersistence> wrapped = new IdentityHashMap<>();
+		for(Map.Entry<CommitVisitor, PersistenceMechanism> entry : visitors.entrySet()) {
+			PersistenceMechanism writer = entry.getValue();
+			if(writer instanceof NoPersistence || writer instanceof MeteredPersistence) continue;
+
+			entry.setValue(wrapped.computeIfAbsent(writer, MeteredPersistence::new));
+		}
+	}
+
+	Set<CommitVisitor> getVisitors() {
+		return visitors.keySet();
+	}
+
 	public void put(CommitVisitor visitor, PersistenceMechanism writer) {
 		this.visitors.put(visitor, writer);
+		this.timers.put(visitor, Metrics.timer("visitor." + visitor.name()));
 	}
 	
 }
@@ -0,0 +1,52 @@
+package org.repodriller;
+
+/**
+ * Admits commits for processing as long as their estimated memory fits into a budget.  Commits are admitted in the
+ * order they ask, so a huge commit waits for the commits in flight to finish, but is not overtaken by small ones.  A
+ * commit larger than the whole budget is admitted once nothing else is in flight.
+ */
+class MemoryBudget {
+
+    private final long capacity;
+    private long inUse;
+    private long nextTicket;
+    private long admittedTickets;
+
+    MemoryBudget(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Waits until the bytes fit into the budget.
+     *
+     * @return The bytes taken from the budget, to be given back with {@link #release(long)}
+     */
+    synchronized long acquire(long bytes) {
+        long granted = Math.min(bytes, capacity);
+        long ticket = nextTicket++;
+
+        boolean interrupted = false;
+        while (ticket != admittedTickets || (inUse > 0 && inUse + granted > capacity)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        admittedTickets++;
+        inUse += granted;
+        notifyAll();
+        return granted;
+    }
+
+    synchronized void release(long granted) {
+        inUse -= granted;
+        notifyAll();
+    }
+
+    synchronized long getBytesInUse() {
+        return inUse;
+    }
+}
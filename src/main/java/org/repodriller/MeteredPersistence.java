@@ -0,0 +1,40 @@
+package org.repodriller;
+
+import org.repodriller.metrics.Metrics;
+import org.repodriller.metrics.Timer;
+import org.repodriller.persistence.PersistenceMechanism;
+
+/**
+ * Measures how long the writes of a {@link PersistenceMechanism} take, in a timer named after its class.  Wrapped
+ * before {@link org.repodriller.persistence.AsyncPersistence}, so it times the writes on the writer thread.
+ */
+class MeteredPersistence implements PersistenceMechanism {
+
+    private final PersistenceMechanism writer;
+    private final Timer timer;
+
+    MeteredPersistence(PersistenceMechanism writer) {
+        this.writer = writer;
+        this.timer = Metrics.timer("persistence." + writer.getClass().getSimpleName());
+    }
+
+    @Override
+    public void write(Object... line) {
+        long start = System.nanoTime();
+        try {
+            writer.write(line);
+        } finally {
+            timer.stop(start);
+        }
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
@@ -0,0 +1,154 @@
+package org.repodriller;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the commits of a repository through three stages, which are connected by bounded queues:
+ * <ol>
+ * <li>the calling thread enumerates the change sets,</li>
+ * <li>materializer threads turn them into the items to visit (e.g., read and filter the commits), and</li>
+ * <li>visitor threads visit these items.</li>
+ * </ol>
+ * Each stage has its own threads, so reading the repository and running the visitors overlap.  When a queue is full,
+ * the stage before it waits, so the memory used by a run is bounded by the queue capacity.
+ */
+class MiningPipeline {
+
+    private static final Logger log = Logger.getLogger(MiningPipeline.class);
+    private static final Object END = new Object();
+
+    private final int materializers;
+    private final int visitors;
+    private final int queueCapacity;
+    private volatile BlockingQueue<Object> toMaterialize;
+    private volatile BlockingQueue<Object> toVisit;
+
+    MiningPipeline(int materializers, int visitors, int queueCapacity) {
+        this.materializers = materializers;
+        this.visitors = visitors;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param materialize Turns a change set into the item to visit; returns <code>null</code> to skip it.  Must not
+     *                    throw.
+     * @param visit       Visits an item; must not throw
+     * @return The number of enumerated change sets
+     */
+    <S, T> long run(Iterator<S> source, Function<S, T> materialize, Consumer<T> visit) {
+        BlockingQueue<Object> toMaterialize = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> toVisit = new ArrayBlockingQueue<>(queueCapacity);
+        this.toMaterialize = toMaterialize;
+        this.toVisit = toVisit;
+
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger runningMaterializers = new AtomicInteger(materializers);
+        for (int i = 1; i <= materializers; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    drain(toMaterialize, (S item) -> {
+                        T result = materialize.apply(item);
+                        if (result != null) put(toVisit, result);
+                    });
+                } finally {
+                    // the last materializer tells the visitors that nothing else will come
+                    if (runningMaterializers.decrementAndGet() == 0) {
+                        for (int v = 0; v < visitors; v++) put(toVisit, END);
+                    }
+                }
+            }, "materialize-" + i));
+        }
+        for (int i = 1; i <= visitors; i++) {
+            threads.add(new Thread(() -> drain(toVisit, visit), "visit-" + i));
+        }
+        for (Thread thread : threads) thread.start();
+
+        long total = 0;
+        while (source.hasNext()) {
+            put(toMaterialize, source.next());
+            total++;
+        }
+        for (int m = 0; m < materializers; m++) put(toMaterialize, END);
+
+        for (Thread thread : threads) joinUninterruptibly(thread);
+        return total;
+    }
+
+    /**
+     * @return The number of change sets waiting to be materialized
+     */
+    int getMaterializeQueueDepth() {
+        BlockingQueue<Object> queue = toMaterialize;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return The number of items waiting to be visited
+     */
+    int getVisitQueueDepth() {
+        BlockingQueue<Object> queue = toVisit;
+        return queue == null ? 0 : queue.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void drain(BlockingQueue<Object> queue, Consumer<T> consumer) {
+        while (true) {
+            Object item = take(queue);
+            if (item == END) return;
+            try {
+                consumer.accept((T) item);
+            } catch (RuntimeException e) {
+                log.error("error in " + Thread.currentThread().getName(), e);
+            }
+        }
+    }
+
+    private static Object take(BlockingQueue<Object> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void put(BlockingQueue<Object> queue, Object item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
@@ -16,44 +16,89 @@
 
 package org.repodriller;
 
-import com.google.common.collect.Lists;
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.apache.log4j.Logger;
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.domain.Commit;
+import org.repodriller.filter.commit.CommitData;
 import org.repodriller.filter.commit.CommitFilter;
 import org.repodriller.filter.commit.NoFilter;
 import org.repodriller.filter.range.CommitRange;
+import org.repodriller.metrics.Counter;
+import org.repodriller.metrics.Metrics;
+import org.repodriller.metrics.Timer;
+import org.repodriller.persistence.AsyncPersistence;
 import org.repodriller.persistence.NoPersistence;
 import org.repodriller.persistence.PersistenceMechanism;
 import org.repodriller.scm.CommitVisitor;
 import org.repodriller.scm.SCMRepository;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class RepositoryMining {
 
     private static final String DATE_FORMAT = "dd/MM/yyyy HH:mm:ss";
     private static final Logger log = Logger.getLogger(RepositoryMining.class);
+    private static final int DEFAULT_BATCH_SIZE = 4;
+    private static final int BATCHES_PER_THREAD_AND_CHUNK = 16;
+    private static final int MAX_PENDING_CHUNKS = 2;
+    private static final int DEFAULT_PIPELINE_QUEUE_CAPACITY = 256;
+    private static final Timer ENUMERATE_TIMER = Metrics.timer("mining.enumerate");
+    private static final Timer GET_COMMIT_TIMER = Metrics.timer("mining.getCommit");
+    private static final Counter ENUMERATED = Metrics.counter("commits.enumerated");
+    private static final Counter FILTERED = Metrics.counter("commits.filtered");
+    private static final Counter VISITED = Metrics.counter("commits.visited");
+    private static final Counter FAILED = Metrics.counter("commits.failed");
 
     private List<SCMRepository> repos;
     private CommitVisitorIterator visitors;
     private CommitRange range;
     private int threads;
+    private int repositoryThreads;
+    private ForkJoinPool sharedPool;
+    private int batchSize;
     private boolean reverseOrder;
     private List<CommitFilter> filters;
+    private List<Timer> filterTimers;
+    private File checkpointFile;
+    private boolean resume;
+    private boolean incremental;
+    private CheckpointJournal journal;
+    private MiningPipeline pipeline;
+    private boolean writeAsynchronously;
+    private MemoryBudget memoryBudget;
+    private boolean meterWrites;
+    private List<AsyncPersistence> asyncWriters = new ArrayList<>();
 
     public RepositoryMining() {
         repos = new ArrayList<SCMRepository>();
         visitors = new CommitVisitorIterator(log);
-        filters = Arrays.asList((CommitFilter) new NoFilter());
+        filters((CommitFilter) new NoFilter());
         this.threads = 1;
+        this.repositoryThreads = 1;
+        this.batchSize = DEFAULT_BATCH_SIZE;
     }
 
     public RepositoryMining through(CommitRange range) {
@@ -71,8 +116,18 @@ public class RepositoryMining {
         return this;
     }
 
+    /**
+     * The filters run from the cheapest to the most expensive, according to the {@link CommitData} they require, so a
+     * commit rejected by its header is never diffed.  Filters that require the same data run in the given order.
+     */
     public RepositoryMining filters(CommitFilter... filters) {
-        this.filters = Arrays.asList(filters);
+        List<CommitFilter> sorted = new ArrayList<>(Arrays.asList(filters));
+        sorted.sort(Comparator.comparing(CommitFilter::requires));
+        this.filters = sorted;
+        this.filterTimers = new ArrayList<>();
+        for (CommitFilter filter : sorted) {
+            filterTimers.add(Metrics.timer("filter." + filter.getClass().getSimpleName()));
+        }
         return this;
     }
 
@@ -85,56 +140,331 @@ public class RepositoryMining {
         return process(visitor, new NoPersistence());
     }
 
+    /**
+     * Records in the given journal file which commits each visitor has finished.  The journal is started over,
+     * unless {@link #resume()} or {@link #incremental()} is used as well.  Commits are journaled in batches, after
+     * the writers were flushed (see {@link PersistenceMechanism#flush()}), so a run that dies repeats the commits
+     * whose rows may not have been written.
+     */
+    public RepositoryMining checkpointIn(String journalFile) {
+        this.checkpointFile = new File(journalFile);
+        return this;
+    }
+
+    /**
+     * Skips the commits that the journal of {@link #checkpointIn(String)} lists as finished by a visitor, e.g., to
+     * continue a run that died.  Commits finished by all visitors are not even read from the repository.
+     */
+    public RepositoryMining resume() {
+        this.resume = true;
+        return this;
+    }
+
+    /**
+     * Like {@link #resume()}, and additionally skips repositories whose HEAD has not changed since all visitors
+     * finished their last run.  In the others, the history is only walked up to the HEAD of the last run, so a
+     * repeated run only processes the commits added since.  Meant for runs that use the same commit range every time.
+     */
+    public RepositoryMining incremental() {
+        this.incremental = true;
+        return resume();
+    }
+
     public void mine() {
+        if (resume && checkpointFile == null)
+            throw new IllegalStateException("resume() and incremental() need a journal, see checkpointIn()");
+        if (pipeline != null && repositoryThreads > 1)
+            throw new IllegalStateException("withPipeline() mines one repository at a time, see withRepositoryThreads()");
 
-        for (SCMRepository repo : repos) {
+        if (meterWrites) visitors.meterWrites();
+        if (writeAsynchronously) asyncWriters = visitors.writeAsynchronously();
+
+        try {
+            if (checkpointFile != null) journal = new CheckpointJournal(checkpointFile, resume, incremental);
+
+            if (repositoryThreads == 1) {
+                for (SCMRepository repo : repos) {
+                    mine(repo);
+                }
+            } else {
+                mineInParallel();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("error writing the journal " + checkpointFile, e);
+        } finally {
+            closeJournal();
+        }
+        visitors.closeAllPersistence();
+        printScript();
+
+    }
+
+    private void mine(SCMRepository repo) throws IOException {
+        if (incremental && isUpToDate(repo)) {
+            log.info("Skipping " + repo.getPath() + ", which did not change since the last run");
+            return;
+        }
+
+        try {
             visitors.initializeVisitors(repo);
             processRepos(repo);
             visitors.finalizeVisitors(repo);
+            if (journal != null) {
+                journal.finished(repo, visitors.getVisitors(), addedSince(repo, repo.getHeadCommit()));
+                checkpoint();
+            }
+        } finally {
+            // the threads that read the repository belong to pools that outlive it
+            repo.getScm().release();
         }
-        visitors.closeAllPersistence();
-        printScript();
+    }
+
+    /**
+     * Mines <code>repositoryThreads</code> repositories at a time.  Each repository is set up, enumerated and
+     * finalized by its own thread, but their commits are all processed by the same pool of <code>threads</code>
+     * workers.
+     */
+    private void mineInParallel() throws IOException {
+        log.info("Starting threads: " + repositoryThreads + " repositories, " + threads + " workers");
+        ExecutorService repositoryPool = Executors.newFixedThreadPool(Math.min(repositoryThreads, Math.max(1, repos.size())));
+        sharedPool = new ForkJoinPool(threads);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (SCMRepository repo : repos) {
+                results.add(repositoryPool.submit(() -> {
+                    mine(repo);
+                    return null;
+                }));
+            }
+
+            Throwable failure = null;
+            for (Future<Void> result : results) {
+                try {
+                    getUninterruptibly(result);
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                    else failure.addSuppressed(e.getCause());
+                }
+            }
+
+            if (failure instanceof IOException) throw (IOException) failure;
+            if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+            if (failure instanceof Error) throw (Error) failure;
+        } finally {
+            repositoryPool.shutdown();
+            sharedPool.shutdown();
+            sharedPool = null;
+        }
+    }
 
+    private static <T> T getUninterruptibly(Future<T> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isUpToDate(SCMRepository repo) {
+        for (CommitVisitor visitor : visitors.getVisitors()) {
+            if (!journal.isUpToDate(repo, visitor)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Flushes the writers, and then journals the commits whose rows they have written.
+     */
+    private void checkpoint() throws IOException {
+        journal.checkpoint(visitors::flushAllPersistence);
+    }
+
+    private void journalDone(SCMRepository repo, Collection<CommitVisitor> visitors, String commit) throws IOException {
+        if (journal.done(repo, visitors, commit)) checkpoint();
+    }
+
+    /**
+     * Tells the journal which commits were added since the last run of each visitor.
+     *
+     * @return The HEAD of the last run, if all visitors have finished it, so the walk can stop there; otherwise
+     * <code>null</code>
+     */
+    private String sinceLastRun(SCMRepository repo) {
+        Set<String> heads = new HashSet<>();
+        for (CommitVisitor visitor : visitors.getVisitors()) {
+            heads.add(journal.getHead(repo, visitor));
+        }
+        if (heads.size() == 1 && !heads.contains(null)) return heads.iterator().next();
+
+        Map<String, Set<String>> addedSince = new HashMap<>();
+        for (CommitVisitor visitor : visitors.getVisitors()) {
+            String head = journal.getHead(repo, visitor);
+            if (head == null) continue;
+            journal.setAddedSinceHead(repo, visitor, addedSince.computeIfAbsent(head, h -> addedSince(repo, h)));
+        }
+        return null;
+    }
+
+    private static Set<String> addedSince(SCMRepository repo, String commit) {
+        try (Stream<ChangeSet> added = repo.getScm().streamChangeSetsSince(commit, false)) {
+            return added.map(ChangeSet::getId).collect(Collectors.toSet());
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            log.error("error writing the journal " + checkpointFile, e);
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.error("error closing the journal " + checkpointFile, e);
+        }
+        journal = null;
     }
 
     private void processRepos(SCMRepository repo) {
         log.info("Git repository in " + repo.getPath());
 
-        List<ChangeSet> allCs = range.get(repo.getScm());
-        if (!reverseOrder) Collections.reverse(allCs);
+        String since = incremental ? sinceLastRun(repo) : null;
+        long total;
+        try (Stream<ChangeSet> changeSets = since == null ? range.stream(repo.getScm(), !reverseOrder)
+                : range.streamSince(repo.getScm(), since, !reverseOrder)) {
+            Iterator<ChangeSet> allCs = enumerate(changeSets.iterator());
+            if (pipeline != null) total = processInPipeline(repo, allCs);
+            else if (sharedPool != null) total = processInPool(repo, allCs, sharedPool);
+            else if (threads == 1) total = processSequentially(repo, allCs);
+            else total = processInParallel(repo, allCs);
+        }
+
+        log.info("Total of commits: " + total);
+    }
+
+    /**
+     * Measures the time spent walking the history.
+     */
+    private static Iterator<ChangeSet> enumerate(Iterator<ChangeSet> changeSets) {
+        return new Iterator<ChangeSet>() {
+            @Override
+            public boolean hasNext() {
+                long start = System.nanoTime();
+                boolean hasNext = changeSets.hasNext();
+                ENUMERATE_TIMER.stop(start);
+                return hasNext;
+            }
+
+            @Override
+            public ChangeSet next() {
+                ChangeSet next = changeSets.next();
+                ENUMERATED.increment();
+                return next;
+            }
+        };
+    }
 
-        log.info("Total of commits: " + allCs.size());
+    private long processSequentially(SCMRepository repo, Iterator<ChangeSet> allCs) {
+        long total = 0;
+        for (; allCs.hasNext(); total++) {
+            tryProcessChangeSet(repo, allCs.next());
+        }
+        return total;
+    }
 
+    private long processInParallel(SCMRepository repo, Iterator<ChangeSet> allCs) {
         log.info("Starting threads: " + threads);
-        ExecutorService exec = Executors.newFixedThreadPool(threads);
-        List<List<ChangeSet>> partitions = Lists.partition(allCs, threads);
-        for (List<ChangeSet> partition : partitions) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return processInPool(repo, allCs, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-            exec.submit(() -> {
-                for (ChangeSet cs : partition) {
-                    try {
-                        processChangeSet(repo, cs);
-                    } catch (OutOfMemoryError e) {
-                        System.err.println("Commit " + cs.getId() + " in " + repo.getLastDir() + " caused OOME");
-                        e.printStackTrace();
-                        System.err.println("goodbye :/");
-
-                        log.fatal("Commit " + cs.getId() + " in " + repo.getLastDir() + " caused OOME", e);
-                        log.fatal("Goodbye! ;/");
-                        System.exit(-1);
-                    } catch (Throwable t) {
-                        log.error(t);
-                    }
+    /**
+     * Reads the change sets in chunks and hands each chunk to the pool as soon as it is complete.  At most {@value
+     * #MAX_PENDING_CHUNKS} chunks of a repository are pending at a time, so the enumeration never runs far ahead of
+     * the workers, and a large repository cannot crowd out the others that share the pool.  Returns when all chunks
+     * are processed.
+     */
+    private long processInPool(SCMRepository repo, Iterator<ChangeSet> it, ForkJoinPool pool) {
+        Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+        int chunkSize = batchSize * threads * BATCHES_PER_THREAD_AND_CHUNK;
+        Consumer<ChangeSet> processor = cs -> tryProcessChangeSet(repo, cs);
+
+        long total = 0;
+        while (it.hasNext()) {
+            List<ChangeSet> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && it.hasNext()) {
+                chunk.add(it.next());
+            }
+            total += chunk.size();
+
+            pendingChunks.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    new ChangeSetTask(chunk, 0, chunk.size(), batchSize, processor).invoke();
+                } finally {
+                    pendingChunks.release();
                 }
             });
         }
 
+        // all permits are back once the last chunks are done
+        pendingChunks.acquireUninterruptibly(MAX_PENDING_CHUNKS);
+        return total;
+    }
+
+    private long processInPipeline(SCMRepository repo, Iterator<ChangeSet> allCs) {
+        return pipeline.run(allCs,
+                cs -> tryProcess(repo, cs.getId(), () -> {
+                    PendingCommit pending = materialize(repo, cs);
+                    if (pending == null) return null;
+                    try {
+                        // scans the modifications here, so that the visitor threads only run the visitors
+                        pending.commit.getModifications();
+                    } catch (Throwable t) {
+                        // the commit is not visited, so its memory is not given back by visit()
+                        if (memoryBudget != null) memoryBudget.release(pending.admitted);
+                        throw t;
+                    }
+                    return pending;
+                }),
+                pending -> tryProcess(repo, pending.commit.getHash(), () -> visit(repo, pending)));
+    }
+
+    private void tryProcessChangeSet(SCMRepository repo, ChangeSet cs) {
+        tryProcess(repo, cs.getId(), () -> {
+            PendingCommit pending = materialize(repo, cs);
+            if (pending != null) visit(repo, pending);
+            return null;
+        });
+    }
+
+    /**
+     * @return The result of the work, or <code>null</code> if it failed
+     */
+    private <T> T tryProcess(SCMRepository repo, String id, Callable<T> work) {
         try {
-            exec.shutdown();
-            exec.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
-        } catch (InterruptedException e) {
-            log.error("error waiting for threads to terminate in " + repo.getLastDir(), e);
+            return work.call();
+        } catch (OutOfMemoryError e) {
+            FAILED.increment();
+            // the commit is unreachable now, so its memory can be collected; see withMemoryBudget()
+            log.error("Commit " + id + " in " + repo.getLastDir() + " caused OOME and is skipped", e);
+        } catch (Throwable t) {
+            FAILED.increment();
+            log.error(t);
         }
+        return null;
     }
 
     private void printScript() {
@@ -149,35 +479,194 @@ public class RepositoryMining {
         visitors.printScript();
     }
 
-    private void processChangeSet(SCMRepository repo, ChangeSet cs) {
+    /**
+     * Reads and filters the commit of a change set.
+     *
+     * @return The commit and the visitors that still have to process it, or <code>null</code> if no visitor has to
+     */
+    private PendingCommit materialize(SCMRepository repo, ChangeSet cs) throws IOException {
+        Collection<CommitVisitor> pending = pendingVisitors(repo, cs);
+        if (pending.isEmpty()) {
+            log.info("Commit #" + cs.getId() + " @ " + repo.getLastDir() + " -> Already done");
+            return null;
+        }
+
+        long start = System.nanoTime();
         Commit commit = repo.getScm().getCommit(cs.getId());
+        GET_COMMIT_TIMER.stop(start);
         if (log.isInfoEnabled()) {
             log.info(
                     "Commit #" + commit.getHash() +
                             " @ " + repo.getLastDir() +
                             " in " + DateFormatUtils.format(commit.getDate().getTime(), DATE_FORMAT) +
-                            " from " + commit.getAuthor().getName() +
-                            " with " + commit.getModifications().size() + " modifications");
+                            " from " + commit.getAuthor().getName());
         }
 
         if (!filtersAccept(commit)) {
+            FILTERED.increment();
             log.info("-> Filtered");
-            return;
+            if (journal != null) journalDone(repo, pending, cs.getId());
+            return null;
+        }
+
+        long admitted = 0;
+        if (memoryBudget != null) {
+            long estimate = repo.getScm().estimateMemory(commit);
+            admitted = memoryBudget.acquire(estimate);
+        }
+        return new PendingCommit(commit, pending, admitted);
+    }
+
+    /**
+     * Visits a commit and gives the memory it was admitted with back to the budget, whether or not the visitors
+     * succeed.
+     */
+    private Void visit(SCMRepository repo, PendingCommit pending) throws IOException {
+        try {
+            visitors.processCommit(repo, pending.commit, pending.visitors);
+            VISITED.increment();
+            if (journal != null) journalDone(repo, pending.visitors, pending.commit.getHash());
+        } finally {
+            if (memoryBudget != null) memoryBudget.release(pending.admitted);
+        }
+        return null;
+    }
+
+    private static class PendingCommit {
+        final Commit commit;
+        final Collection<CommitVisitor> visitors;
+        final long admitted;
+
+        PendingCommit(Commit commit, Collection<CommitVisitor> visitors, long admitted) {
+            this.commit = commit;
+            this.visitors = visitors;
+            this.admitted = admitted;
         }
+    }
 
-        visitors.processCommit(repo, commit);
+    /**
+     * @return The visitors that have yet to process the change set; all of them, unless a run is resumed
+     */
+    private Collection<CommitVisitor> pendingVisitors(SCMRepository repo, ChangeSet cs) {
+        if (!resume) return visitors.getVisitors();
 
+        List<CommitVisitor> pending = new ArrayList<>();
+        for (CommitVisitor visitor : visitors.getVisitors()) {
+            if (!journal.isDone(repo, visitor, cs.getId())) pending.add(visitor);
+        }
+        return pending;
     }
 
     private boolean filtersAccept(Commit commit) {
-        for (CommitFilter filter : filters) {
-            if (!filter.accept(commit)) return false;
+        for (int i = 0; i < filters.size(); i++) {
+            long start = System.nanoTime();
+            boolean accepted = filters.get(i).accept(commit);
+            filterTimers.get(i).stop(start);
+            if (!accepted) return false;
         }
         return true;
     }
 
+    /**
+     * Processes the commits in a pipeline of stages that run concurrently: the commits are enumerated by the mining
+     * thread, read from the repository and filtered by <code>materializeThreads</code> threads, and visited by
+     * <code>visitThreads</code> threads.  The stages are connected by queues of {@value
+     * #DEFAULT_PIPELINE_QUEUE_CAPACITY} entries.  Replaces {@link #withThreads(int)}.  Add {@link
+     * #writeAsynchronously()} to write the rows in a stage of their own.
+     */
+    public RepositoryMining withPipeline(int materializeThreads, int visitThreads) {
+        return withPipeline(materializeThreads, visitThreads, DEFAULT_PIPELINE_QUEUE_CAPACITY);
+    }
+
+    /**
+     * See {@link #withPipeline(int, int)}.
+     *
+     * @param queueCapacity The number of entries each queue between two stages can hold
+     */
+    public RepositoryMining withPipeline(int materializeThreads, int visitThreads, int queueCapacity) {
+        if (materializeThreads < 1 || visitThreads < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("Pipeline threads and queue capacity must be at least 1");
+        this.pipeline = new MiningPipeline(materializeThreads, visitThreads, queueCapacity);
+        return this;
+    }
+
+    /**
+     * @return The number of entries waiting in front of each stage of the pipeline (<code>materialize</code>,
+     * <code>visit</code> and <code>persist</code>); 0 for the stages that {@link #withPipeline(int, int)} and {@link
+     * #writeAsynchronously()} do not set up.  Useful to find the stage that needs more threads: its queue is full most
+     * of the time.
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        depths.put("materialize", pipeline == null ? 0 : pipeline.getMaterializeQueueDepth());
+        depths.put("visit", pipeline == null ? 0 : pipeline.getVisitQueueDepth());
+        depths.put("persist", asyncWriters.stream().mapToInt(AsyncPersistence::getQueuedRows).sum());
+        return depths;
+    }
+
+    /**
+     * Times the writes of every {@link PersistenceMechanism} in a <code>persistence.&lt;class&gt;</code> timer, see
+     * {@link Metrics}.  The visitors then get a wrapper instead of the writer they were given.
+     */
+    public RepositoryMining meterWrites() {
+        this.meterWrites = true;
+        return this;
+    }
+
+    /**
+     * Wraps every {@link PersistenceMechanism} in an {@link AsyncPersistence}, so the rows are written by one thread
+     * per writer and the visitors do not wait for them.  Since the rows are written later, the visitors must not
+     * change the values of a row after they have written it.
+     */
+    public RepositoryMining writeAsynchronously() {
+        this.writeAsynchronously = true;
+        return this;
+    }
+
     public RepositoryMining withThreads(int n) {
         this.threads = n;
         return this;
     }
+
+    /**
+     * Limits the memory of the commits in flight: before a commit is visited, its SCM estimates how much memory its
+     * diffs and source code take (see {@link org.repodriller.scm.SCM#estimateMemory(Commit)}), and the commit waits
+     * until that fits into the budget.  This only matters when commits are processed in parallel; a commit that is
+     * larger than the budget is processed once nothing else is in flight.
+     *
+     * @param bytes The budget, e.g., a fraction of <code>Runtime.getRuntime().maxMemory()</code>
+     */
+    public RepositoryMining withMemoryBudget(long bytes) {
+        if (bytes < 1) throw new IllegalArgumentException("Memory budget must be positive, got " + bytes);
+        this.memoryBudget = new MemoryBudget(bytes);
+        return this;
+    }
+
+    /**
+     * Mines up to <code>n</code> repositories at the same time, which keeps the workers busy while repositories are
+     * opened and enumerated, e.g., when mining many small repositories.  The commits of all repositories are processed
+     * by the same {@link #withThreads(int)} workers.  Each visitor is still initialized for a repository before its
+     * first commit and finalized after its last one, but visitors see the commits of several repositories
+     * interleaved, so they must be thread-safe and keep per-repository state by repository.  Cannot be combined with
+     * {@link #withPipeline(int, int)}.
+     */
+    public RepositoryMining withRepositoryThreads(int n) {
+        if (n < 1) throw new IllegalArgumentException("Repository threads must be at least 1, got " + n);
+        this.repositoryThreads = n;
+        return this;
+    }
+
+    /**
+     * Sets the number of consecutive commits a thread processes before it checks whether other threads ran out of
+     * work.  Idle threads steal pending commits from busy ones, so smaller batches balance the load better when some
+     * commits are much more expensive than others.  Larger batches reduce the scheduling overhead for cheap visitors.
+     * Has no effect unless more than one thread is used.
+     *
+     * @param n The batch size; must be at least 1
+     */
+    public RepositoryMining withBatchSize(int n) {
+        if (n < 1) throw new IllegalArgumentException("Batch size must be at least 1, got " + n);
+        this.batchSize = n;
+        return this;
+    }
 }
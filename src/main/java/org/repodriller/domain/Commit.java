@@ -19,39 +19,58 @@ package org.repodriller.domain;
 import java.util.*;
 
 
+/**
+ * A commit and its modifications.
+ * <p>
+ * Commits are kept compact, so studies that hold on to a whole history fit in memory: Git hashes are kept as 20
+ * bytes, dates as milliseconds, branches as a bit set, and developers, paths and time zones are shared between
+ * commits.  The getters build their results from these on each call.
+ */
 public class Commit {
 
-    private String hash;
-    private Developer author;
-    private Developer committer;
-    private String msg;
-    private List<Modification> modifications;
-    private List<String> parents;
-    private Calendar date;
-    private Set<String> branches;
-    private boolean merge;
-    private boolean inMainBranch;
-    private TimeZone authorTimeZone;
-    private TimeZone committerTimeZone;
-    private Calendar committerDate;
+    private static final int ID_LENGTH = 20;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] id;
+    private final String hash;
+    private final Developer author;
+    private final Developer committer;
+    private final String msg;
+    private final List<Modification> modifications;
+    private final byte[] parentIds;
+    private final List<String> parents;
+    private final long authorMillis;
+    private final long committerMillis;
+    private final TimeZone authorDateZone;
+    private final TimeZone committerDateZone;
+    private final TimeZone authorTimeZone;
+    private final TimeZone committerTimeZone;
+    private final long[] branches;
+    private final boolean merge;
+    private final boolean inMainBranch;
+    private boolean modificationsLoaded;
 
     public Commit(String hash, Developer author, Developer committer, Calendar authorDate, Calendar committerDate, String msg, List<String> parents) {
         this(hash, author, committer, authorDate, TimeZone.getDefault(), committerDate, TimeZone.getDefault(), msg, parents, false, new HashSet<>(), false);
     }
 
     public Commit(String hash, Developer author, Developer committer, Calendar authorDate, TimeZone authorTimeZone, Calendar committerDate, TimeZone committerTimeZone, String msg, List<String> parents, boolean merge, Set<String> branches, boolean isCommitInMainBranch) {
-        this.hash = hash;
-        this.author = author;
-        this.committer = committer;
-        this.date = authorDate;
-        this.committerDate = committerDate;
+        this.id = toId(hash);
+        this.hash = id == null ? hash : null;
+        this.author = Interner.developer(author);
+        this.committer = Interner.developer(committer);
+        this.authorMillis = authorDate == null ? Long.MIN_VALUE : authorDate.getTimeInMillis();
+        this.authorDateZone = authorDate == null ? null : Interner.timeZone(authorDate.getTimeZone());
+        this.committerMillis = committerDate == null ? Long.MIN_VALUE : committerDate.getTimeInMillis();
+        this.committerDateZone = committerDate == null ? null : Interner.timeZone(committerDate.getTimeZone());
         this.msg = msg;
-        this.parents = parents;
+        this.parentIds = toIds(parents);
+        this.parents = parentIds == null && parents != null ? new ArrayList<>(parents) : null;
         this.merge = merge;
-        this.authorTimeZone = authorTimeZone;
-        this.committerTimeZone = committerTimeZone;
+        this.authorTimeZone = Interner.timeZone(authorTimeZone);
+        this.committerTimeZone = Interner.timeZone(committerTimeZone);
         this.modifications = new ArrayList<Modification>();
-        this.branches = branches;
+        this.branches = toBits(branches);
         this.inMainBranch = isCommitInMainBranch;
     }
 
@@ -60,7 +79,7 @@ public class Commit {
     }
 
     public String getHash() {
-        return hash;
+        return id == null ? hash : toHex(id, 0);
     }
 
     public Developer getAuthor() {
@@ -79,7 +98,8 @@ public class Commit {
      * @return The hash of the first parent commit, if a parent exists; otherwise, the empty string
      */
     public String getParent() {
-        if (parents.isEmpty()) return "";
+        if (parentIds != null) return parentIds.length == 0 ? "" : toHex(parentIds, 0);
+        if (parents == null || parents.isEmpty()) return "";
         return parents.get(0);
     }
 
@@ -87,39 +107,60 @@ public class Commit {
      * @return An unmodifiable, possibly empty set of hashes of the parents of this commit
      */
     public Collection<String> getParents() {
-        return parents;
+        if (parentIds == null) return parents == null ? Collections.emptyList() : Collections.unmodifiableList(parents);
+
+        List<String> hashes = new ArrayList<>(parentIds.length / ID_LENGTH);
+        for (int offset = 0; offset < parentIds.length; offset += ID_LENGTH) hashes.add(toHex(parentIds, offset));
+        return Collections.unmodifiableList(hashes);
     }
 
-    public void addModification(String oldPath, String newPath, ModificationType change, String diff, String sc) {
+    public synchronized void addModification(String oldPath, String newPath, ModificationType change, String diff, String sc) {
         Modification m = new Modification(oldPath, newPath, change, diff, sc);
         modifications.add(m);
 
     }
 
-    public void addModifications(List<Modification> modifications) {
+    public synchronized void addModifications(List<Modification> modifications) {
         this.modifications.addAll(modifications);
     }
 
-    public List<Modification> getModifications() {
+    /**
+     * The first call adds the modifications returned by {@link #loadModifications()}, so filters and visitors
+     * that only look at the header of a commit never pay for its diff.
+     */
+    public synchronized List<Modification> getModifications() {
+        if (!modificationsLoaded) {
+            modifications.addAll(loadModifications());
+            modificationsLoaded = true;
+        }
         return Collections.unmodifiableList(modifications);
     }
 
+    /**
+     * Subclasses that find the modifications of a commit on demand override this.
+     *
+     * @return The modifications to add to the ones added with {@link #addModifications(List)}
+     */
+    protected List<Modification> loadModifications() {
+        return Collections.emptyList();
+    }
+
     public Calendar getCommitterDate() {
-        return committerDate;
+        return toCalendar(committerMillis, committerDateZone);
     }
 
     @Override
     public String toString() {
-        return "Commit [hash=" + hash + ", parents=" + parents + ", author=" + author + ", msg=" + msg + ", modifications="
+        return "Commit [hash=" + getHash() + ", parents=" + getParents() + ", author=" + author + ", msg=" + msg + ", modifications="
                 + modifications + "]";
     }
 
     public TimeZone getAuthorTimeZone() {
-        return authorTimeZone;
+        return copy(authorTimeZone);
     }
 
     public TimeZone getCommitterTimeZone() {
-        return committerTimeZone;
+        return copy(committerTimeZone);
     }
 
     @Override
@@ -130,20 +171,92 @@ public class Commit {
             return true;
         } else {
             Commit c = (Commit) other;
-            return this.getHash().equals(c.getHash());
+            if (id != null || c.id != null) return Arrays.equals(id, c.id);
+            return Objects.equals(hash, c.hash);
         }
     }
 
     public Calendar getDate() {
-        return date;
+        return toCalendar(authorMillis, authorDateZone);
     }
 
     public Set<String> getBranches() {
-        return Collections.unmodifiableSet(branches);
+        if (branches == null) return Collections.emptySet();
+
+        Set<String> names = new HashSet<>();
+        BitSet bits = BitSet.valueOf(branches);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) names.add(Interner.branchName(i));
+        return Collections.unmodifiableSet(names);
     }
 
     public boolean isInMainBranch() {
         return inMainBranch;
     }
 
+    @Override
+    public int hashCode() {
+        return id != null ? Arrays.hashCode(id) : Objects.hashCode(hash);
+    }
+
+    /**
+     * Time zones are shared between commits but mutable, so callers get a copy.
+     */
+    private static TimeZone copy(TimeZone zone) {
+        return zone == null ? null : (TimeZone) zone.clone();
+    }
+
+    private static Calendar toCalendar(long millis, TimeZone zone) {
+        if (zone == null) return null;
+        Calendar calendar = new GregorianCalendar(copy(zone));
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    private static long[] toBits(Set<String> branches) {
+        if (branches == null || branches.isEmpty()) return null;
+        BitSet bits = new BitSet();
+        for (String branch : branches) bits.set(Interner.branchIndex(branch));
+        return bits.toLongArray();
+    }
+
+    /**
+     * @return The 20 bytes of a Git hash, or <code>null</code> if it is something else, e.g., a Subversion revision
+     */
+    private static byte[] toId(String hash) {
+        if (hash == null || hash.length() != 2 * ID_LENGTH) return null;
+        byte[] id = new byte[ID_LENGTH];
+        return parseHex(hash, id, 0) ? id : null;
+    }
+
+    private static byte[] toIds(List<String> hashes) {
+        if (hashes == null) return null;
+        byte[] ids = new byte[hashes.size() * ID_LENGTH];
+        for (int i = 0; i < hashes.size(); i++) {
+            String hash = hashes.get(i);
+            if (hash == null || hash.length() != 2 * ID_LENGTH || !parseHex(hash, ids, i * ID_LENGTH)) return null;
+        }
+        return ids;
+    }
+
+    private static boolean parseHex(String hash, byte[] to, int offset) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int high = Character.digit(hash.charAt(2 * i), 16);
+            int low = Character.digit(hash.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0 || Character.isUpperCase(hash.charAt(2 * i)) || Character.isUpperCase(hash.charAt(2 * i + 1)))
+                return false;
+            to[offset + i] = (byte) (high << 4 | low);
+        }
+        return true;
+    }
+
+    private static String toHex(byte[] ids, int offset) {
+        char[] hex = new char[2 * ID_LENGTH];
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int b = ids[offset + i] & 0xFF;
+            hex[2 * i] = HEX[b >>> 4];
+            hex[2 * i + 1] = HEX[b & 0xF];
+        }
+        return new String(hex);
+    }
+
 }
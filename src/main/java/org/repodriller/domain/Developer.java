@@ -16,15 +16,31 @@
 
 package org.repodriller.domain;
 
+import java.util.Objects;
+
 public class Developer {
 
 	private String name;
 	private String email;
+	private int id;
 
 	public Developer(String name, String email) {
+		this(-1, name, email);
+	}
+
+	Developer(int id, String name, String email) {
+		this.id = id;
 		this.name = name;
 		this.email = email;
 	}
+
+	/**
+	 * @return The index of this developer in the {@link DeveloperPool} of its repository, from 0 to the size of the
+	 * pool; -1 for developers created outside a pool
+	 */
+	public int getId() {
+		return id;
+	}
 	
 	public String getName() {
 		return name;
@@ -40,5 +56,17 @@ public class Developer {
 		return "Committer [name=" + name + ", email=" + email + "]";
 	}
 
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Developer)) return false;
+		Developer d = (Developer) other;
+		return Objects.equals(name, d.name) && Objects.equals(email, d.email);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, email);
+	}
+
 	
 }
@@ -0,0 +1,132 @@
+package org.repodriller.domain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The developers of a repository, each created once and numbered from 0, so visitors can count per developer in
+ * arrays indexed by {@link Developer#getId()}:
+ *
+ * <pre>
+ * DeveloperPool developers = repo.getScm().getDevelopers();
+ * int[] commits = new int[developers.size()];
+ * ...
+ * commits[commit.getAuthor().getId()]++;
+ * </pre>
+ *
+ * Aliases, e.g., from a <code>.mailmap</code> file, map the names and emails developers used in some commits to the
+ * ones they should be known by.  Add them before mining; developers that were already looked up are not renamed.
+ */
+public class DeveloperPool {
+
+    private static final Pattern MAILMAP_ENTRY = Pattern.compile("\\s*([^<#]*?)\\s*<([^>]*)>");
+
+    private final Map<String, Developer> identities = new ConcurrentHashMap<>();
+    private final Map<String, Developer> developers = new ConcurrentHashMap<>();
+    private final Map<String, String[]> aliasesByEmail = new ConcurrentHashMap<>();
+    private final Map<String, String[]> aliasesByNameAndEmail = new ConcurrentHashMap<>();
+    private volatile Developer[] byId = new Developer[16];
+    private volatile int size;
+
+    /**
+     * @return The developer with the given name and email, after applying the aliases
+     */
+    public Developer get(String name, String email) {
+        String identity = key(name, email);
+        Developer developer = identities.get(identity);
+        if (developer != null) return developer;
+
+        String[] alias = aliasesByNameAndEmail.get(lowerCaseKey(name, email));
+        if (alias == null) alias = aliasesByEmail.get(lowerCaseKey(null, email));
+        String properName = alias != null && alias[0] != null ? alias[0] : name;
+        String properEmail = alias != null && alias[1] != null ? alias[1] : email;
+
+        developer = developers.computeIfAbsent(key(properName, properEmail), k -> add(properName, properEmail));
+        identities.putIfAbsent(identity, developer);
+        return developer;
+    }
+
+    /**
+     * @param id An id from 0 to {@link #size()}
+     */
+    public Developer get(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("no developer " + id);
+        return byId[id];
+    }
+
+    /**
+     * @return The number of developers so far; ids are smaller than this
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Makes developers that used the given email (and name, if not <code>null</code>) known by the proper name and
+     * email.  Names and emails are matched case-insensitively.
+     *
+     * @param properName  The name to use, or <code>null</code> to keep the one of the commit
+     * @param properEmail The email to use, or <code>null</code> to keep the one of the commit
+     */
+    public void addAlias(String properName, String properEmail, String commitName, String commitEmail) {
+        String[] alias = { properName, properEmail };
+        if (commitName == null) aliasesByEmail.put(lowerCaseKey(null, commitEmail), alias);
+        else aliasesByNameAndEmail.put(lowerCaseKey(commitName, commitEmail), alias);
+        identities.clear();
+    }
+
+    /**
+     * Adds the aliases of a file in the format of Git's <code>.mailmap</code>:
+     *
+     * <pre>
+     * Proper Name &lt;commit@email&gt;
+     * &lt;proper@email&gt; &lt;commit@email&gt;
+     * Proper Name &lt;proper@email&gt; &lt;commit@email&gt;
+     * Proper Name &lt;proper@email&gt; Commit Name &lt;commit@email&gt;
+     * </pre>
+     */
+    public void readMailmap(Reader mailmap) throws IOException {
+        BufferedReader reader = new BufferedReader(mailmap);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = MAILMAP_ENTRY.matcher(line);
+            if (!matcher.lookingAt()) continue;
+            String name = emptyToNull(matcher.group(1));
+            String email = emptyToNull(matcher.group(2));
+
+            matcher.region(matcher.end(), line.length());
+            if (!matcher.lookingAt()) {
+                if (name != null) addAlias(name, null, null, email);
+            } else {
+                addAlias(name, email, emptyToNull(matcher.group(1)), matcher.group(2));
+            }
+        }
+    }
+
+    private synchronized Developer add(String name, String email) {
+        if (size == byId.length) byId = Arrays.copyOf(byId, size * 2);
+        Developer developer = new Developer(size, name, email);
+        byId[size] = developer;
+        size++;
+        return developer;
+    }
+
+    private static String key(String name, String email) {
+        return name + '\u0000' + email;
+    }
+
+    private static String lowerCaseKey(String name, String email) {
+        return key(name == null ? null : name.toLowerCase(Locale.ROOT), email == null ? null : email.toLowerCase(Locale.ROOT));
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
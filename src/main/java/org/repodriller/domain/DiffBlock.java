@@ -3,11 +3,14 @@ package org.repodriller.domain;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.IntFunction;
 
 import org.repodriller.RepoDrillerException;
 
+/**
+ * A block (hunk) of a diff: the header with the positions of the block in the old and new file, followed by its
+ * lines.  The block is a range of lines of the {@link DiffText} of its diff.
+ */
 public class DiffBlock {
 
 	private int d1;
@@ -15,74 +18,207 @@ public class DiffBlock {
 	private int d3;
 	private int d4;
 	
+	private final DiffText text;
+	private final int firstLine;
+	private final int endLine;
 	private String[] lines;
 	private String diffBlock;
+	private int[] oldIndex;
+	private int[] newIndex;
 
 	public DiffBlock(String diffBlock) {
-		this.diffBlock = diffBlock;
-		this.lines = diffBlock.replace("\r", "").split("\n");
+		this(new DiffText(diffBlock), 0, -1);
+	}
+
+	/**
+	 * @param firstLine The header line of the block in the diff
+	 * @param endLine   The line after the last line of the block, or -1 for the end of the diff
+	 */
+	DiffBlock(DiffText text, int firstLine, int endLine) {
+		this.text = text;
+		this.firstLine = firstLine;
+		this.endLine = endLine < 0 ? text.lineCount() : endLine;
 		
 		getLinePositions();
 	}
 	
+	/**
+	 * Reads a header like <code>@@ -72,7 +72,8 @@</code>; a missing count means 1.
+	 */
 	private void getLinePositions() {
-		String positions = lines[0];
-		Pattern p = Pattern.compile("@@ -(\\d*),(\\d*) \\+(\\d*),(\\d*) @@.*");
-		Matcher matcher = p.matcher(positions);
-		
-		if(matcher.matches()) {
-			d1 = Integer.parseInt(matcher.group(1));
-			d2 = Integer.parseInt(matcher.group(2));
-			d3 = Integer.parseInt(matcher.group(3));
-			d4 = Integer.parseInt(matcher.group(4));
-		} else {
-			throw new RepoDrillerException("Impossible to get line positions in this diff: " + diffBlock);
+		if(firstLine >= endLine || !text.startsWith(firstLine, "@@ -")) throw positionsNotFound();
+
+		CharSequence chars = text.getText();
+		int[] values = new int[4];
+		int pos = text.start(firstLine) + 4;
+		int end = text.end(firstLine);
+		for(int v = 0; v < 4; v += 2) {
+			int digits = pos;
+			while(pos < end && Character.isDigit(chars.charAt(pos))) values[v] = values[v] * 10 + (chars.charAt(pos++) - '0');
+			if(pos == digits) throw positionsNotFound();
+
+			values[v + 1] = 1;
+			if(pos < end && chars.charAt(pos) == ',') {
+				digits = ++pos;
+				values[v + 1] = 0;
+				while(pos < end && Character.isDigit(chars.charAt(pos))) values[v + 1] = values[v + 1] * 10 + (chars.charAt(pos++) - '0');
+				if(pos == digits) throw positionsNotFound();
+			}
+
+			String separator = v == 0 ? " +" : " @@";
+			for(int i = 0; i < separator.length(); i++, pos++) {
+				if(pos >= end || chars.charAt(pos) != separator.charAt(i)) throw positionsNotFound();
+			}
 		}
+
+		d1 = values[0];
+		d2 = values[1];
+		d3 = values[2];
+		d4 = values[3];
 	}
 
-	public String[] getLines() {
+	private RepoDrillerException positionsNotFound() {
+		return new RepoDrillerException("Impossible to get line positions in this diff: " + getDiffBlock());
+	}
+
+	public synchronized String[] getLines() {
+		if(lines == null) lines = getDiffBlock().split("\n");
 		return lines;
 	}
 
-	private List<DiffLine> getLines(int start, int qtyLines, String ch) {
-		List<DiffLine> oldLines = new ArrayList<>();
-		int counter = start; 
-		for(String line : lines) {
-			if(line.startsWith(ch) || line.startsWith(" ")) {
-				oldLines.add(new DiffLine(counter, line.substring(1), typeOf(line)));
+	/**
+	 * @return For each line of the old (or new) file in this block, from its first line number on, the line of the
+	 * diff it is in
+	 */
+	private synchronized int[] index(boolean oldFile) {
+		if(oldFile && oldIndex != null) return oldIndex;
+		if(!oldFile && newIndex != null) return newIndex;
+
+		char ch = oldFile ? '-' : '+';
+		int qtyLines = oldFile ? d2 : d4;
+		int[] index = new int[qtyLines];
+		int counter = 0;
+		for(int line = firstLine; line < endLine; line++) {
+			char first = text.first(line);
+			if(first == ch || first == ' ') {
+				if(counter < qtyLines) index[counter] = line;
 				counter++;
 			}
 		}
-		if(counter!=start+qtyLines) throw new RepoDrillerException("malformed diff");
-		
-		return oldLines;
-		
+		if(counter!=qtyLines) throw new RepoDrillerException("malformed diff");
+
+		if(oldFile) oldIndex = index;
+		else newIndex = index;
+		return index;
+	}
+
+	private List<DiffLine> getLines(boolean oldFile, int first, int last) {
+		int[] index = index(oldFile);
+		int start = oldFile ? d1 : d3;
+		int from = Math.max(first, start);
+		int to = Math.min(last, start + index.length - 1);
+
+		List<DiffLine> lines = new ArrayList<>(Math.max(0, to - from + 1));
+		for(int number = from; number <= to; number++) {
+			lines.add(lineAt(index, number - start, number));
+		}
+		return lines;
+	}
+
+	private Optional<DiffLine> getLine(boolean oldFile, int number) {
+		int[] index = index(oldFile);
+		int i = number - (oldFile ? d1 : d3);
+		if(i < 0 || i >= index.length) return Optional.empty();
+		return Optional.of(lineAt(index, i, number));
+	}
+
+	private DiffLine lineAt(int[] index, int i, int number) {
+		return new DiffLine(number, text, index[i], typeOf(text.first(index[i])));
 	}
 	
-	private DiffLineType typeOf(String line) {
-		if(line.startsWith(" ")) return DiffLineType.KEPT;
-		if(line.startsWith("+")) return DiffLineType.ADDED;
-		if(line.startsWith("-")) return DiffLineType.REMOVED;
-		throw new RepoDrillerException("type of diff line not recognized: " + line);
+	private DiffLineType typeOf(char first) {
+		if(first == ' ') return DiffLineType.KEPT;
+		if(first == '+') return DiffLineType.ADDED;
+		return DiffLineType.REMOVED;
 	}
 
 	public List<DiffLine> getLinesInOldFile() {
-		return getLines(d1, d2, "-");
+		return getLines(true, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return The lines of this block that are between the given line numbers of the old file, both included
+	 */
+	public List<DiffLine> getLinesInOldFile(int first, int last) {
+		return getLines(true, first, last);
 	}
 	
 	public Optional<DiffLine> getLineInOldFile(int line) {
-		return getLinesInOldFile().stream().filter(x -> x.getLineNumber() == line).findFirst();
+		return getLine(true, line);
 	}
 
 	public Optional<DiffLine> getLineInNewFile(int line) {
-		return getLinesInNewFile().stream().filter(x -> x.getLineNumber() == line).findFirst();
+		return getLine(false, line);
 	}
 
 	public List<DiffLine> getLinesInNewFile() {
-		return getLines(d3, d4, "+");
+		return getLines(false, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return The lines of this block that are between the given line numbers of the new file, both included
+	 */
+	public List<DiffLine> getLinesInNewFile(int first, int last) {
+		return getLines(false, first, last);
 	}
 	
-	public String getDiffBlock() {
+	/**
+	 * @return The changed regions of this block: each run of removed and added lines between kept lines is one edit
+	 */
+	public List<DiffEdit> getEdits() {
+		List<DiffEdit> edits = new ArrayList<>();
+		IntFunction<String> oldFile = position -> text.line(index(true)[position + 1 - d1], 1);
+		IntFunction<String> newFile = position -> text.line(index(false)[position + 1 - d3], 1);
+
+		// positions are 0-based; a block that only adds lines starts after line d1, not at it
+		int oldPosition = d2 == 0 ? d1 : d1 - 1;
+		int newPosition = d4 == 0 ? d3 : d3 - 1;
+		int beginOld = -1;
+		int beginNew = -1;
+		for(int line = firstLine + 1; line < endLine; line++) {
+			char first = text.first(line);
+			if(first != ' ' && first != '-' && first != '+') continue;
+
+			if(first == ' ') {
+				if(beginOld >= 0) edits.add(new DiffEdit(beginOld, oldPosition, beginNew, newPosition, oldFile, newFile));
+				beginOld = -1;
+				oldPosition++;
+				newPosition++;
+				continue;
+			}
+
+			if(beginOld < 0) {
+				beginOld = oldPosition;
+				beginNew = newPosition;
+			}
+			if(first == '-') oldPosition++;
+			else newPosition++;
+		}
+		if(beginOld >= 0) edits.add(new DiffEdit(beginOld, oldPosition, beginNew, newPosition, oldFile, newFile));
+		return edits;
+	}
+
+	/**
+	 * @return The text of this block, one line per line break
+	 */
+	public synchronized String getDiffBlock() {
+		if(diffBlock == null) {
+			StringBuilder block = new StringBuilder();
+			for(int line = firstLine; line < endLine; line++) {
+				block.append(text.getText(), text.start(line), text.end(line)).append('\n');
+			}
+			diffBlock = block.toString().replace("\r", "");
+		}
 		return diffBlock;
 	}
 	
@@ -0,0 +1,103 @@
+package org.repodriller.domain;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A region of a file that a commit changed: lines <code>beginOld</code> (inclusive) to <code>endOld</code>
+ * (exclusive) of the old file were replaced by lines <code>beginNew</code> to <code>endNew</code> of the new one.
+ * Like JGit's <code>Edit</code>, the positions are 0-based, so the line number of a line is its position plus one.
+ * <p>
+ * The text of the lines is read from the file contents only when it is asked for.
+ */
+public class DiffEdit {
+
+    private final int beginOld;
+    private final int endOld;
+    private final int beginNew;
+    private final int endNew;
+    private final IntFunction<String> oldFile;
+    private final IntFunction<String> newFile;
+
+    /**
+     * @param oldFile The line at a position of the old file
+     * @param newFile The line at a position of the new file
+     */
+    public DiffEdit(int beginOld, int endOld, int beginNew, int endNew, IntFunction<String> oldFile, IntFunction<String> newFile) {
+        this.beginOld = beginOld;
+        this.endOld = endOld;
+        this.beginNew = beginNew;
+        this.endNew = endNew;
+        this.oldFile = oldFile;
+        this.newFile = newFile;
+    }
+
+    public DiffEditType getType() {
+        if (beginOld == endOld) return DiffEditType.INSERT;
+        if (beginNew == endNew) return DiffEditType.DELETE;
+        return DiffEditType.REPLACE;
+    }
+
+    public int getBeginOld() {
+        return beginOld;
+    }
+
+    public int getEndOld() {
+        return endOld;
+    }
+
+    public int getBeginNew() {
+        return beginNew;
+    }
+
+    public int getEndNew() {
+        return endNew;
+    }
+
+    /**
+     * @return The removed lines
+     */
+    public List<String> getOldLines() {
+        return lines(oldFile, beginOld, endOld);
+    }
+
+    /**
+     * @return The added lines
+     */
+    public List<String> getNewLines() {
+        return lines(newFile, beginNew, endNew);
+    }
+
+    private static List<String> lines(IntFunction<String> file, int begin, int end) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("no line " + index);
+                return file.apply(begin + index);
+            }
+
+            @Override
+            public int size() {
+                return end - begin;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof DiffEdit)) return false;
+        DiffEdit edit = (DiffEdit) other;
+        return beginOld == edit.beginOld && endOld == edit.endOld && beginNew == edit.beginNew && endNew == edit.endNew;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((beginOld * 31 + endOld) * 31 + beginNew) * 31 + endNew;
+    }
+
+    @Override
+    public String toString() {
+        return "DiffEdit [" + getType() + " old=" + beginOld + "-" + endOld + ", new=" + beginNew + "-" + endNew + "]";
+    }
+}
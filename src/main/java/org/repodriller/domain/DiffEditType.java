@@ -0,0 +1,7 @@
+package org.repodriller.domain;
+
+public enum DiffEditType {
+	INSERT,
+	DELETE,
+	REPLACE
+}
@@ -3,8 +3,10 @@ package org.repodriller.domain;
 public class DiffLine {
 
 	private final int lineNumber;
-	private final String line;
+	private String line;
 	private DiffLineType type;
+	private DiffText text;
+	private int textLine;
 	
 	public DiffLine(int lineNumber, String line, DiffLineType type) {
 		this.lineNumber = lineNumber;
@@ -12,11 +14,22 @@ public class DiffLine {
 		this.type = type;
 	}
 
+	/**
+	 * A line whose text is only copied out of the diff when it is asked for.
+	 */
+	DiffLine(int lineNumber, DiffText text, int textLine, DiffLineType type) {
+		this.lineNumber = lineNumber;
+		this.text = text;
+		this.textLine = textLine;
+		this.type = type;
+	}
+
 	public int getLineNumber() {
 		return lineNumber;
 	}
 
 	public String getLine() {
+		if (line == null && text != null) line = text.line(textLine, 1);
 		return line;
 	}
 	
@@ -26,13 +39,14 @@ public class DiffLine {
 
 	@Override
 	public String toString() {
-		return "DiffLine [lineNumber=" + lineNumber + ", line=" + line + ", type=" + type + "]";
+		return "DiffLine [lineNumber=" + lineNumber + ", line=" + getLine() + ", type=" + type + "]";
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		String line = getLine();
 		result = prime * result + ((line == null) ? 0 : line.hashCode());
 		result = prime * result + lineNumber;
 		result = prime * result + ((type == null) ? 0 : type.hashCode());
@@ -48,10 +62,11 @@ public class DiffLine {
 		if (getClass() != obj.getClass())
 			return false;
 		DiffLine other = (DiffLine) obj;
+		String line = getLine();
 		if (line == null) {
-			if (other.line != null)
+			if (other.getLine() != null)
 				return false;
-		} else if (!line.equals(other.line))
+		} else if (!line.equals(other.getLine()))
 			return false;
 		if (lineNumber != other.lineNumber)
 			return false;
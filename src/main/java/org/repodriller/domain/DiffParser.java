@@ -1,16 +1,25 @@
 package org.repodriller.domain;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Splits a unified diff into its blocks (hunks).  The diff is read once; the blocks and their lines are views over
+ * it, so no string is created per line until a line is asked for.
+ */
 public class DiffParser {
 
+	private static final int HEADER_LINES = 4;
+
 	private List<DiffBlock> diffBlocks;
 
-	private String fullDiff;
+	private CharSequence fullDiff;
 	
 	public DiffParser(String fullDiff) {
+		this((CharSequence) fullDiff);
+	}
+
+	public DiffParser(CharSequence fullDiff) {
 		this.fullDiff = fullDiff;
 		diffBlocks = new ArrayList<>();
 		
@@ -18,28 +27,15 @@ public class DiffParser {
 	}
 
 	private void extractDiffBlocks() {
-		String[] lines = fullDiff.replace("\r", "").split("\n");
-		String[] linesNoHeader = Arrays.copyOfRange(lines, 4, lines.length);
+		DiffText text = new DiffText(fullDiff);
 
-		StringBuilder currentDiff = new StringBuilder();
-		boolean currentInADiff = false;
-		
-		for(int i = 0; i < linesNoHeader.length; i++) {
-			String currentLine = linesNoHeader[i];
-			if(currentLine.startsWith("@@ -") && !currentInADiff) {
-				currentInADiff = true;
-			}
-			else if(currentLine.startsWith("@@ -") && currentInADiff) {
-				diffBlocks.add(new DiffBlock(currentDiff.toString()));
-				currentDiff = new StringBuilder();
-				currentInADiff = false;
-				i--;
-			}
-
-			if(currentInADiff) currentDiff.append(currentLine + "\n");
+		int blockStart = -1;
+		for(int line = HEADER_LINES; line < text.lineCount(); line++) {
+			if(!text.startsWith(line, "@@ -")) continue;
+			if(blockStart >= 0) diffBlocks.add(new DiffBlock(text, blockStart, line));
+			blockStart = line;
 		}
-		diffBlocks.add(new DiffBlock(currentDiff.toString()));
-
+		if(blockStart >= 0) diffBlocks.add(new DiffBlock(text, blockStart, text.lineCount()));
 	}
 	
 	public List<DiffBlock> getBlocks() {
@@ -47,7 +43,7 @@ public class DiffParser {
 	}
 
 	public String getFullDiff() {
-		return fullDiff;
+		return fullDiff.toString();
 	}
 
 }
@@ -0,0 +1,80 @@
+package org.repodriller.domain;
+
+import java.util.Arrays;
+
+/**
+ * The lines of a diff, found in a single pass: each line is a pair of offsets into the text, without its line break
+ * (<code>\n</code> or <code>\r\n</code>), so reading a diff does not create a string per line.
+ */
+final class DiffText {
+
+    private final CharSequence text;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+
+    DiffText(CharSequence text) {
+        this.text = text;
+        int capacity = Math.max(16, text.length() / 32);
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) == '\n') {
+                add(start, i);
+                start = i + 1;
+            }
+        }
+        // like String.split, a line break at the end does not start another line
+        if (start < length) add(start, length);
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        if (end > start && text.charAt(end - 1) == '\r') end--;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    int lineCount() {
+        return count;
+    }
+
+    int start(int line) {
+        return starts[line];
+    }
+
+    int end(int line) {
+        return ends[line];
+    }
+
+    boolean startsWith(int line, String prefix) {
+        int start = starts[line];
+        if (ends[line] - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The first character of the line, or 0 if it is empty
+     */
+    char first(int line) {
+        return ends[line] > starts[line] ? text.charAt(starts[line]) : 0;
+    }
+
+    CharSequence getText() {
+        return text;
+    }
+
+    String line(int line, int from) {
+        return text.subSequence(starts[line] + from, ends[line]).toString();
+    }
+}
@@ -0,0 +1,63 @@
+package org.repodriller.domain;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tables that let commits share what repeats across a history: developers, paths, time zones and branch names.
+ * <p>
+ * Developers from a {@link DeveloperPool} are already unique and kept as they are; other developers and paths are
+ * only kept while some commit refers to them.  Branch names get a stable index, so a commit can keep its branches as
+ * a bit set.
+ */
+final class Interner {
+
+    private static final Map<Developer, WeakReference<Developer>> developers = new WeakHashMap<>();
+    private static final Map<String, TimeZone> timeZones = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> branchIndexes = new HashMap<>();
+    private static final List<String> branchNames = new ArrayList<>();
+
+    private Interner() {
+    }
+
+    static Developer developer(Developer developer) {
+        if (developer == null || developer.getId() >= 0) return developer;
+        synchronized (developers) {
+            WeakReference<Developer> ref = developers.get(developer);
+            Developer interned = ref == null ? null : ref.get();
+            if (interned != null) return interned;
+            developers.put(developer, new WeakReference<>(developer));
+            return developer;
+        }
+    }
+
+    static String path(String path) {
+        return path == null ? null : path.intern();
+    }
+
+    static TimeZone timeZone(TimeZone zone) {
+        if (zone == null) return null;
+        // a copy, so changes to the zone of the caller do not reach other commits
+        return timeZones.computeIfAbsent(zone.getID() + "/" + zone.getRawOffset(), key -> (TimeZone) zone.clone());
+    }
+
+    static synchronized int branchIndex(String branch) {
+        Integer index = branchIndexes.get(branch);
+        if (index == null) {
+            index = branchNames.size();
+            branchNames.add(branch);
+            branchIndexes.put(branch, index);
+        }
+        return index;
+    }
+
+    static synchronized String branchName(int index) {
+        return branchNames.get(index);
+    }
+}
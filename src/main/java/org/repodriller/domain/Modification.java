@@ -17,7 +17,17 @@
 package org.repodriller.domain;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * A file changed by a commit.
+ * <p>
+ * The diff, the source code, the edits and the line counts may be loaded lazily: subclasses that use the protected
+ * constructor provide them through {@link #loadDiff()}, {@link #loadSourceCode()}, {@link #loadEdits()} and
+ * {@link #loadLineCounts()}, which are called on first access only.
+ */
 public class Modification {
 
 	private String oldPath;
@@ -25,21 +35,38 @@ public class Modification {
 	private ModificationType type;
 	private String diff;
 	private String sourceCode;
+	private boolean counted;
 	private int added;
 	private int removed;
+	private List<DiffEdit> edits;
 
 	public Modification(String oldPath, String newPath, ModificationType type, String diff, String sourceCode) {
-		this.oldPath = oldPath;
-		this.newPath = newPath;
-		this.type = type;
+		this(oldPath, newPath, type);
 		this.diff = diff;
 		this.sourceCode = sourceCode;
-		
-		for(String line : diff.replace("\r", "").split("\n")) {
-			if(line.startsWith("+") && !line.startsWith("+++")) added++;
-			if(line.startsWith("-") && !line.startsWith("---")) removed++;
-		}
-		
+	}
+
+	/**
+	 * Creates a modification whose diff and source code are loaded on first access.
+	 */
+	protected Modification(String oldPath, String newPath, ModificationType type) {
+		this.oldPath = Interner.path(oldPath);
+		this.newPath = Interner.path(newPath);
+		this.type = type;
+	}
+
+	/**
+	 * @return The diff of this file; only called if the modification was created without one
+	 */
+	protected String loadDiff() {
+		return "";
+	}
+
+	/**
+	 * @return The source code of this file after the change; only called if the modification was created without it
+	 */
+	protected String loadSourceCode() {
+		return "";
 	}
 
 	public String getOldPath() {
@@ -54,14 +81,34 @@ public class Modification {
 		return type;
 	}
 
-	public String getDiff() {
+	public synchronized String getDiff() {
+		if(diff == null) diff = loadDiff();
 		return diff;
 	}
 
-	public String getSourceCode() {
+	public synchronized String getSourceCode() {
+		if(sourceCode == null) sourceCode = loadSourceCode();
 		return sourceCode;
 	}
 
+	/**
+	 * @return The changed regions of this file, in order
+	 */
+	public synchronized List<DiffEdit> getEdits() {
+		if(edits == null) edits = Collections.unmodifiableList(loadEdits());
+		return edits;
+	}
+
+	/**
+	 * Finds the edits of this file.  The default implementation parses the diff; subclasses may find them without
+	 * rendering it.
+	 */
+	protected List<DiffEdit> loadEdits() {
+		List<DiffEdit> edits = new ArrayList<>();
+		for(DiffBlock block : new DiffParser(getDiff()).getBlocks()) edits.addAll(block.getEdits());
+		return edits;
+	}
+
 	@Override
 	public String toString() {
 		return "Modification [oldPath=" + oldPath + ", newPath=" + newPath + ", type=" + type
@@ -90,12 +137,41 @@ public class Modification {
 	
 
 	public int getAdded() {
+		countLines();
 		return added;
 	}
 	
 	public int getRemoved() {
+		countLines();
 		return removed;
 	}
 
+	private synchronized void countLines() {
+		if(counted) return;
+
+		int[] counts = loadLineCounts();
+		added = counts[0];
+		removed = counts[1];
+		counted = true;
+	}
+
+	/**
+	 * Counts the added and removed lines of this file.  The default implementation counts the lines of the diff;
+	 * subclasses may count them without rendering the diff text.
+	 *
+	 * @return The number of added lines, followed by the number of removed lines
+	 */
+	protected int[] loadLineCounts() {
+		int added = 0;
+		int removed = 0;
+		DiffText diff = new DiffText(getDiff());
+		for(int line = 0; line < diff.lineCount(); line++) {
+			char first = diff.first(line);
+			if(first == '+' && !diff.startsWith(line, "+++")) added++;
+			if(first == '-' && !diff.startsWith(line, "---")) removed++;
+		}
+		return new int[] { added, removed };
+	}
+
 	
 }
@@ -0,0 +1,22 @@
+package org.repodriller.filter.commit;
+
+/**
+ * The parts of a commit a {@link CommitFilter} looks at, from the cheapest to the most expensive to read.
+ */
+public enum CommitData {
+
+	/**
+	 * Hash, author, committer, dates, message, parents and branches.
+	 */
+	HEADER,
+
+	/**
+	 * The header and the paths and types of the modifications, which requires diffing the trees of the commit.
+	 */
+	PATHS,
+
+	/**
+	 * Everything, including the diffs and the source code of the modifications.
+	 */
+	CONTENT
+}
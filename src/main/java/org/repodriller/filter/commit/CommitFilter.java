@@ -5,5 +5,13 @@ import org.repodriller.domain.Commit;
 public interface CommitFilter {
 
 	boolean accept(Commit commit);
+
+	/**
+	 * @return The data {@link #accept(Commit)} looks at; filters that require less run first.  Assumes everything
+	 * unless overridden.
+	 */
+	default CommitData requires() {
+		return CommitData.CONTENT;
+	}
 	
 }
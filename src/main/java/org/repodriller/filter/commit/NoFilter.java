@@ -8,4 +8,9 @@ public class NoFilter implements CommitFilter{
 		return true;
 	}
 
+	@Override
+	public CommitData requires() {
+		return CommitData.HEADER;
+	}
+
 }
@@ -17,4 +17,9 @@ public class OnlyInBranches implements CommitFilter{
 		return commit.getBranches().stream().anyMatch(commitBranch -> branches.stream().anyMatch(branch -> branch.equals(commitBranch)));
 	}
 
+	@Override
+	public CommitData requires() {
+		return CommitData.HEADER;
+	}
+
 }
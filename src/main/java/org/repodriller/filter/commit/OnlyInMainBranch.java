@@ -8,4 +8,9 @@ public class OnlyInMainBranch implements CommitFilter {
 		return commit.isInMainBranch();
 	}
 
+	@Override
+	public CommitData requires() {
+		return CommitData.HEADER;
+	}
+
 }
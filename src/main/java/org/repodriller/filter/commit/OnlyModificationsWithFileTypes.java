@@ -16,5 +16,10 @@ public class OnlyModificationsWithFileTypes implements CommitFilter{
 		return commit.getModifications().stream().anyMatch(
 				m -> fileExtensions.stream().anyMatch(fe -> m.fileNameEndsWith(fe)));
 	}
-	
+
+	@Override
+	public CommitData requires() {
+		return CommitData.PATHS;
+	}
+
 }
@@ -8,4 +8,9 @@ public class OnlyNoMerge implements CommitFilter{
 		return !commit.isMerge();
 	}
 
+	@Override
+	public CommitData requires() {
+		return CommitData.HEADER;
+	}
+
 }
@@ -1,6 +1,7 @@
 package org.repodriller.filter.range;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.scm.SCM;
@@ -12,4 +13,14 @@ public class AllCommits implements CommitRange {
 		return scm.getChangeSets();
 	}
 
+	@Override
+	public Stream<ChangeSet> stream(SCM scm, boolean reverse) {
+		return scm.streamChangeSets(reverse);
+	}
+
+	@Override
+	public Stream<ChangeSet> streamSince(SCM scm, String commit, boolean reverse) {
+		return scm.streamChangeSetsSince(commit, reverse);
+	}
+
 }
@@ -3,6 +3,7 @@ package org.repodriller.filter.range;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.scm.SCM;
@@ -33,6 +34,11 @@ public class BetweenDates implements CommitRange {
 		return filtered;
 	}
 
+	@Override
+	public Stream<ChangeSet> stream(SCM scm, boolean reverse) {
+		return scm.streamChangeSets(reverse).filter(this::isInTheRange);
+	}
+
 	private boolean isInTheRange(ChangeSet cs) {
 		return from.before(cs.getTime()) && to.after(cs.getTime());
 	}
@@ -1,10 +1,39 @@
 package org.repodriller.filter.range;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.scm.SCM;
 
 public interface CommitRange {
 	List<ChangeSet> get(SCM scm);
+
+	/**
+	 * Lazily enumerates the change sets of this range.  The returned stream must be closed after use.
+	 * The default implementation materializes {@link #get(SCM)}.
+	 *
+	 * @param reverse If <code>true</code>, the change sets are returned in the opposite order of {@link #get(SCM)}.
+	 */
+	default Stream<ChangeSet> stream(SCM scm, boolean reverse) {
+		List<ChangeSet> all = new ArrayList<>(get(scm));
+		if(reverse) Collections.reverse(all);
+		return all.stream();
+	}
+
+	/**
+	 * Like {@link #stream(SCM, boolean)}, but only the change sets added since the given commit, see
+	 * {@link SCM#streamChangeSetsSince(String, boolean)}.  The default implementation filters the whole range.
+	 */
+	default Stream<ChangeSet> streamSince(SCM scm, String commit, boolean reverse) {
+		Set<String> added;
+		try (Stream<ChangeSet> changeSets = scm.streamChangeSetsSince(commit, false)) {
+			added = changeSets.map(ChangeSet::getId).collect(Collectors.toSet());
+		}
+		return stream(scm, reverse).filter(cs -> added.contains(cs.getId()));
+	}
 }
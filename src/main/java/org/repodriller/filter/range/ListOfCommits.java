@@ -1,7 +1,10 @@
 package org.repodriller.filter.range;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.scm.SCM;
@@ -28,4 +31,10 @@ public class ListOfCommits implements CommitRange {
 		return filtered;
 	}
 
+	@Override
+	public Stream<ChangeSet> stream(SCM scm, boolean reverse) {
+		Set<String> wanted = new HashSet<>(commits);
+		return scm.streamChangeSets(reverse).filter(cs -> wanted.contains(cs.getId()));
+	}
+
 }
@@ -0,0 +1,27 @@
+package org.repodriller.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events.  Cheap enough to be incremented by many threads for every commit.
+ */
+public class Counter implements CounterMXBean {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,9 @@
+package org.repodriller.metrics;
+
+/**
+ * How a {@link Counter} shows up in JMX.
+ */
+public interface CounterMXBean {
+
+    long getCount();
+}
@@ -0,0 +1,89 @@
+package org.repodriller.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The timers and counters of the mining engine, by name.  Metrics are created on first use and live as long as the
+ * JVM, so they add up over all mining runs.  Look them up once and keep them in a field where they are used on every
+ * commit.
+ * <p>
+ * See {@link MetricsReporter} to write them to a file periodically, and {@link #registerMBeans()} to watch them in
+ * JMX (e.g., with JConsole).
+ */
+public class Metrics {
+
+    private static final Logger log = Logger.getLogger(Metrics.class);
+    private static final String JMX_DOMAIN = "org.repodriller";
+
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static volatile boolean jmx;
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer != null) return timer;
+
+        timer = timers.computeIfAbsent(name, n -> new Timer());
+        register("Timer", name, timer);
+        return timer;
+    }
+
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) return counter;
+
+        counter = counters.computeIfAbsent(name, n -> new Counter());
+        register("Counter", name, counter);
+        return counter;
+    }
+
+    /**
+     * @return All timers, sorted by name
+     */
+    public static SortedMap<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    /**
+     * @return All counters, sorted by name
+     */
+    public static SortedMap<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * Registers every metric, including the ones created later, in the platform MBean server as
+     * <code>org.repodriller:type=Timer,name=...</code> or <code>org.repodriller:type=Counter,name=...</code>.
+     */
+    public static synchronized void registerMBeans() {
+        if (jmx) return;
+        jmx = true;
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) register("Timer", timer.getKey(), timer.getValue());
+        for (Map.Entry<String, Counter> counter : counters.entrySet()) register("Counter", counter.getKey(), counter.getValue());
+    }
+
+    private static synchronized void register(String type, String name, Object metric) {
+        if (!jmx) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) server.registerMBean(metric, objectName);
+        } catch (JMException e) {
+            log.warn("could not register metric " + name + " in JMX", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.repodriller.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Appends a snapshot of all {@link Metrics} to a tab-separated file at a fixed interval, and a last one when it is
+ * closed.  Each snapshot has one row per metric: the time of the snapshot, the name, the count, and for timers the
+ * total milliseconds and the mean, 50th, 95th and 99th percentile and maximum in microseconds.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(MetricsReporter.class);
+    static final String HEADER = "time\tmetric\tcount\ttotal_ms\tmean_us\tp50_us\tp95_us\tp99_us\tmax_us";
+
+    private final PrintWriter out;
+    private final ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    public MetricsReporter(String fileName, long interval, TimeUnit unit) {
+        try {
+            File file = new File(fileName);
+            boolean isNew = !file.exists() || file.length() == 0;
+            this.out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            if (isNew) out.println(HEADER);
+        } catch (IOException e) {
+            throw new RuntimeException("error opening " + fileName, e);
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, interval, interval, unit);
+    }
+
+    public synchronized void report() {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Timer> entry : Metrics.getTimers().entrySet()) {
+            Timer timer = entry.getValue();
+            out.println(String.format(Locale.ROOT, "%d\t%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f", now, entry.getKey(),
+                    timer.getCount(), timer.getTotalMillis(), timer.getMeanMicros(), timer.getP50Micros(),
+                    timer.getP95Micros(), timer.getP99Micros(), timer.getMaxMicros()));
+        }
+        for (Map.Entry<String, Counter> entry : Metrics.getCounters().entrySet()) {
+            out.println(now + "\t" + entry.getKey() + "\t" + entry.getValue().getCount() + "\t\t\t\t\t\t");
+        }
+        out.flush();
+        if (out.checkError()) log.warn("error writing metrics");
+    }
+
+    /**
+     * Stops the periodic snapshots and writes a last one.
+     */
+    @Override
+    public synchronized void close() {
+        scheduler.shutdownNow();
+        report();
+        closed = true;
+        out.close();
+    }
+}
@@ -0,0 +1,22 @@
+package org.repodriller.metrics;
+
+/**
+ * How a {@link Timer} shows up in JMX.  Percentiles are approximate: they are the upper bounds of power-of-two
+ * buckets.
+ */
+public interface TimerMXBean {
+
+    long getCount();
+
+    double getTotalMillis();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP95Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+}
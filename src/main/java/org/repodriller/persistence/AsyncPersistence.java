@@ -0,0 +1,244 @@
+package org.repodriller.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Wraps a {@link PersistenceMechanism} so that rows are written by a dedicated thread, and mining threads do not wait
+ * for the disk.
+ * <p>
+ * Rows are handed over through a bounded queue.  What happens when the queue is full depends on the
+ * {@link BackpressurePolicy}.  Since rows are written later, the values of a row must not change after
+ * {@link #write(Object...)} returns, and errors of the wrapped mechanism (e.g., a row that does not match the header
+ * of a CSV file) are thrown by the next call to {@link #write(Object...)}, {@link #flush()} or {@link #close()}.  If
+ * the writer thread dies, every later call fails.
+ * <p>
+ * {@link #flush()} waits until the rows written so far are written and flushed by the wrapped mechanism.
+ * {@link #close()} waits until all queued rows are written and then closes the wrapped mechanism.
+ */
+public class AsyncPersistence implements PersistenceMechanism {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    public enum BackpressurePolicy {
+        /** Wait until the writer has room for the row. */
+        BLOCK,
+        /** Discard the row; see {@link #getDroppedRows()}. */
+        DROP,
+        /** Write the row in the calling thread, bypassing the queue; rows may then be written out of order. */
+        CALLER_RUNS
+    }
+
+    private static final Object END_OF_ROWS = new Object();
+    private static final long WRITER_CHECK_MILLIS = 100;
+    private static final AtomicInteger writerCount = new AtomicInteger();
+
+    private final PersistenceMechanism target;
+    private final BackpressurePolicy policy;
+    /** Rows, flush requests and {@link #END_OF_ROWS} */
+    private final BlockingQueue<Object> queue;
+    private final Thread writer;
+    private final AtomicLong droppedRows = new AtomicLong();
+    /** Writers share the read lock, so closing waits for the rows that are being queued */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile RuntimeException failure;
+    private volatile Throwable death;
+    private boolean closed;
+
+    public AsyncPersistence(PersistenceMechanism target) {
+        this(target, DEFAULT_CAPACITY, BackpressurePolicy.BLOCK);
+    }
+
+    /**
+     * @param capacity The number of rows that may wait to be written
+     */
+    public AsyncPersistence(PersistenceMechanism target, int capacity, BackpressurePolicy policy) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+
+        this.target = target;
+        this.policy = policy;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeRows, "persistence-writer-" + writerCount.incrementAndGet());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(Object... line) {
+        throwFailure();
+        throwIfDead();
+
+        closeLock.readLock().lock();
+        try {
+            if (closed) throw new PersistenceMechanismException("persistence is already closed");
+            if (queue.offer(line)) return;
+
+            switch (policy) {
+                case BLOCK:
+                    put(line);
+                    break;
+                case DROP:
+                    droppedRows.incrementAndGet();
+                    break;
+                case CALLER_RUNS:
+                    target.write(line);
+                    break;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        throwFailure();
+        throwIfDead();
+
+        CountDownLatch flushed = new CountDownLatch(1);
+        closeLock.readLock().lock();
+        try {
+            if (closed) throw new PersistenceMechanismException("persistence is already closed");
+            put(flushed);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (flushed.await(WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) break;
+                    throwIfDead();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        throwFailure();
+    }
+
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            // nothing can be queued anymore, so this is the last entry
+            put(END_OF_ROWS);
+        } catch (PersistenceMechanismException e) {
+            // the writer is dead, which is thrown below
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        target.close();
+        throwFailure();
+        throwIfDead();
+    }
+
+    /**
+     * @return The number of rows discarded by the {@link BackpressurePolicy#DROP} policy
+     */
+    public long getDroppedRows() {
+        return droppedRows.get();
+    }
+
+    /**
+     * @return The number of rows waiting to be written
+     */
+    public int getQueuedRows() {
+        return queue.size();
+    }
+
+    private void writeRows() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Object entry : batch) {
+                    if (entry == END_OF_ROWS) return;
+                    if (entry instanceof CountDownLatch) flushTarget((CountDownLatch) entry);
+                    else writeRow((Object[]) entry);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            death = new PersistenceMechanismException("writer thread was interrupted", e);
+        } catch (Throwable t) {
+            death = t;
+        }
+    }
+
+    private void writeRow(Object[] line) {
+        try {
+            target.write(line);
+        } catch (RuntimeException e) {
+            // keep the first error, but go on writing so close() still drains the queue
+            if (failure == null) failure = e;
+        }
+    }
+
+    private void flushTarget(CountDownLatch flushed) {
+        try {
+            target.flush();
+        } catch (RuntimeException e) {
+            if (failure == null) failure = e;
+        } finally {
+            flushed.countDown();
+        }
+    }
+
+    /**
+     * Queues an entry, even if the queue is full, unless the writer thread has died.
+     */
+    private void put(Object entry) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (queue.offer(entry, WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) return;
+                    throwIfDead();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+
+    private void throwIfDead() {
+        if (death != null) throw new PersistenceMechanismException("the writer thread has died", death);
+    }
+}
@@ -27,5 +27,12 @@ public interface PersistenceMechanism {
      */
     void write(Object... line);
 
+    /**
+     * Writes out the rows that are still buffered, e.g., before the commits they belong to are recorded as done.
+     * Mechanisms that write every row right away have nothing to do, which is the default.
+     */
+    default void flush() {
+    }
+
     void close();
 }
@@ -23,5 +23,9 @@ public class PersistenceMechanismException extends RuntimeException {
 		super(msg);
 	}
 
+	public PersistenceMechanismException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
 
 }
@@ -0,0 +1,293 @@
+package org.repodriller.persistence.columnar;
+
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.persistence.PersistenceMechanismException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes rows into a compressed, columnar binary file, which is much smaller and faster to read than a CSV file.
+ * Use {@link ColumnarFileReader} to read it.
+ * <p>
+ * Rows are collected in row groups.  When a row group is full, each of its columns is written as a separate chunk,
+ * so a reader can skip the columns it does not need.  The type of a chunk is chosen from its values: integral
+ * numbers are stored as longs, other numbers as doubles, booleans as bits and everything else as strings, which go
+ * into a dictionary of the distinct strings of the chunk.  Nulls are kept in a bitmap.  Every chunk is deflated.
+ * <p>
+ * The column names come from the header, or are numbered if there is none.  Every row must have as many values as
+ * the first one.  The values of a row must not change until the row group is written.
+ * <p>
+ * The file is only complete (and readable) after {@link #close()}.
+ */
+public class ColumnarFile implements PersistenceMechanism {
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+    static final byte[] MAGIC = { 'R', 'D', 'C', '1' };
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte BOOLEAN = 3;
+    static final byte STRING = 4;
+
+    private final DataOutputStream out;
+    private final int rowGroupSize;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private String[] columnNames;
+    private List<Object>[] columns;
+    private long offset;
+    private int rows;
+    private boolean closed;
+
+    public ColumnarFile(String fileName) {
+        this(fileName, null);
+    }
+
+    public ColumnarFile(String fileName, String[] header) {
+        this(fileName, header, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * @param rowGroupSize The number of rows that are collected in memory before they are written
+     */
+    public ColumnarFile(String fileName, String[] header, int rowGroupSize) {
+        if (rowGroupSize < 1) throw new IllegalArgumentException("rowGroupSize must be positive");
+        this.rowGroupSize = rowGroupSize;
+
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 64 * 1024));
+            out.write(MAGIC);
+            offset = MAGIC.length;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (header != null) initColumns(header.clone());
+    }
+
+    @Override
+    public synchronized void write(Object... line) {
+        if (closed) throw new PersistenceMechanismException("columnar file is already closed");
+        if (columnNames == null) {
+            String[] names = new String[line.length];
+            for (int i = 0; i < names.length; i++) names[i] = "column" + (i + 1);
+            initColumns(names);
+        }
+        if (line.length != columnNames.length)
+            throw new PersistenceMechanismException("Row has " + line.length + " values, but the file has " + columnNames.length + " columns.");
+
+        for (int i = 0; i < line.length; i++) {
+            columns[i].add(normalize(line[i]));
+        }
+        if (++rows == rowGroupSize) writeRowGroup();
+    }
+
+    /**
+     * Writes the rows collected so far as a (smaller) row group.  The file still needs {@link #close()} to be readable.
+     */
+    @Override
+    public synchronized void flush() {
+        if (closed) throw new PersistenceMechanismException("columnar file is already closed");
+        if (rows > 0) writeRowGroup();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new PersistenceMechanismException("error writing the columnar file", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+
+        try {
+            if (columnNames == null) initColumns(new String[0]);
+            if (rows > 0) writeRowGroup();
+            writeFooter();
+            out.close();
+        } catch (IOException e) {
+            throw new PersistenceMechanismException("error closing the columnar file", e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void initColumns(String[] names) {
+        columnNames = names;
+        columns = new List[names.length];
+        for (int i = 0; i < names.length; i++) columns[i] = new ArrayList<>(Math.min(rowGroupSize, 1024));
+    }
+
+    /**
+     * Keeps the values that are stored with their type, and turns everything else into a string right away, as it
+     * might change before the row group is written.
+     */
+    private static Object normalize(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || isIntegral(value) || isFloating(value))
+            return value;
+        return value.toString();
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isFloating(Object value) {
+        return value instanceof Double || value instanceof Float;
+    }
+
+    private void writeRowGroup() {
+        try {
+            long[] offsets = new long[columns.length];
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            for (int i = 0; i < columns.length; i++) {
+                offsets[i] = offset;
+                chunk.reset();
+                encode(columns[i], new DataOutputStream(chunk));
+                writeCompressed(chunk.toByteArray());
+                columns[i].clear();
+            }
+            rowGroups.add(new RowGroup(rows, offsets));
+            rows = 0;
+        } catch (IOException e) {
+            throw new PersistenceMechanismException("error writing the columnar file", e);
+        }
+    }
+
+    private void encode(List<Object> values, DataOutputStream chunk) throws IOException {
+        byte type = typeOf(values);
+        chunk.writeByte(type);
+
+        byte[] nulls = new byte[(values.size() + 7) / 8];
+        boolean hasNulls = false;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == null) {
+                nulls[i / 8] |= 1 << (i % 8);
+                hasNulls = true;
+            }
+        }
+        chunk.writeBoolean(hasNulls);
+        if (hasNulls) chunk.write(nulls);
+
+        switch (type) {
+            case LONG:
+                long previous = 0;
+                for (Object value : values) {
+                    if (value == null) continue;
+                    long l = ((Number) value).longValue();
+                    Varints.writeSigned(chunk, l - previous);
+                    previous = l;
+                }
+                break;
+            case DOUBLE:
+                for (Object value : values) {
+                    if (value != null) chunk.writeDouble(((Number) value).doubleValue());
+                }
+                break;
+            case BOOLEAN:
+                byte[] bits = new byte[(values.size() + 7) / 8];
+                for (int i = 0; i < values.size(); i++) {
+                    if (Boolean.TRUE.equals(values.get(i))) bits[i / 8] |= 1 << (i % 8);
+                }
+                chunk.write(bits);
+                break;
+            default:
+                encodeStrings(values, chunk);
+        }
+    }
+
+    private static void encodeStrings(List<Object> values, DataOutputStream chunk) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] indexes = new int[values.size()];
+        int n = 0;
+        for (Object value : values) {
+            if (value == null) continue;
+            String s = value.toString();
+            Integer index = dictionary.get(s);
+            if (index == null) {
+                index = entries.size();
+                dictionary.put(s, index);
+                entries.add(s);
+            }
+            indexes[n++] = index;
+        }
+
+        Varints.writeUnsigned(chunk, entries.size());
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes("UTF-8");
+            Varints.writeUnsigned(chunk, bytes.length);
+            chunk.write(bytes);
+        }
+        for (int i = 0; i < n; i++) {
+            Varints.writeUnsigned(chunk, indexes[i]);
+        }
+    }
+
+    private static byte typeOf(List<Object> values) {
+        boolean integral = true, floating = true, bool = true;
+        for (Object value : values) {
+            if (value == null) continue;
+            integral &= isIntegral(value);
+            floating &= isIntegral(value) || isFloating(value);
+            bool &= value instanceof Boolean;
+        }
+        if (bool && !integral) return BOOLEAN;
+        if (integral) return LONG;
+        if (floating) return DOUBLE;
+        return STRING;
+    }
+
+    private void writeCompressed(byte[] data) throws IOException {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            compressed.write(buffer, 0, n);
+        }
+
+        out.writeInt(data.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+        offset += 8 + compressed.size();
+    }
+
+    /**
+     * The footer holds the schema and the offsets of all chunks, followed by its own length and the magic bytes.
+     */
+    private void writeFooter() throws IOException {
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footerBytes);
+        footer.writeInt(columnNames.length);
+        for (String name : columnNames) footer.writeUTF(name);
+        footer.writeInt(rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            footer.writeInt(rowGroup.rows);
+            for (long chunkOffset : rowGroup.offsets) footer.writeLong(chunkOffset);
+        }
+
+        footerBytes.writeTo(out);
+        out.writeInt(footerBytes.size());
+        out.write(MAGIC);
+    }
+
+    private static class RowGroup {
+        final int rows;
+        final long[] offsets;
+
+        RowGroup(int rows, long[] offsets) {
+            this.rows = rows;
+            this.offsets = offsets;
+        }
+    }
+}
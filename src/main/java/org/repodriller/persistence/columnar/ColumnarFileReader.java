@@ -0,0 +1,212 @@
+package org.repodriller.persistence.columnar;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the rows of a file written by {@link ColumnarFile}.
+ * <p>
+ * Values come back as <code>Long</code>, <code>Double</code>, <code>Boolean</code>, <code>String</code> or
+ * <code>null</code>.  Only the chunks of the requested columns are read, one row group at a time.
+ */
+public class ColumnarFileReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final List<String> columnNames;
+    private final int[] rowGroupSizes;
+    private final long[][] chunkOffsets;
+
+    public ColumnarFileReader(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "r");
+        try {
+            byte[] magic = new byte[ColumnarFile.MAGIC.length];
+            file.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarFile.MAGIC)) throw new IOException(fileName + " is not a columnar file");
+
+            long tail = file.length() - 4 - ColumnarFile.MAGIC.length;
+            file.seek(tail);
+            int footerLength = file.readInt();
+            file.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarFile.MAGIC)) throw new IOException(fileName + " is incomplete");
+
+            byte[] footerBytes = new byte[footerLength];
+            file.seek(tail - footerLength);
+            file.readFully(footerBytes);
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes));
+
+            List<String> names = new ArrayList<>();
+            int columns = footer.readInt();
+            for (int i = 0; i < columns; i++) names.add(footer.readUTF());
+            columnNames = Collections.unmodifiableList(names);
+
+            int rowGroups = footer.readInt();
+            rowGroupSizes = new int[rowGroups];
+            chunkOffsets = new long[rowGroups][columns];
+            for (int g = 0; g < rowGroups; g++) {
+                rowGroupSizes[g] = footer.readInt();
+                for (int c = 0; c < columns; c++) chunkOffsets[g][c] = footer.readLong();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public long getRowCount() {
+        long rows = 0;
+        for (int size : rowGroupSizes) rows += size;
+        return rows;
+    }
+
+    /**
+     * @param columns The names of the columns to read, in the order they should appear in the rows; all columns if
+     *                none are given
+     * @return The rows, each with one value per requested column.  The iterator throws an
+     * {@link UncheckedIOException} if the file cannot be read.
+     */
+    public Iterator<Object[]> read(String... columns) {
+        int[] projection = project(columns);
+
+        return new Iterator<Object[]>() {
+            private int rowGroup = -1;
+            private int row;
+            private Object[][] values;
+
+            @Override
+            public boolean hasNext() {
+                while (values == null || row == rowGroupSizes[rowGroup]) {
+                    if (rowGroup + 1 == rowGroupSizes.length) return false;
+                    rowGroup++;
+                    row = 0;
+                    values = readRowGroup(rowGroup, projection);
+                }
+                return true;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Object[] result = new Object[projection.length];
+                for (int c = 0; c < projection.length; c++) result[c] = values[c][row];
+                row++;
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int[] project(String[] columns) {
+        if (columns.length == 0) {
+            int[] all = new int[columnNames.size()];
+            for (int c = 0; c < all.length; c++) all[c] = c;
+            return all;
+        }
+
+        int[] projection = new int[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            projection[c] = columnNames.indexOf(columns[c]);
+            if (projection[c] < 0) throw new IllegalArgumentException("no column named " + columns[c]);
+        }
+        return projection;
+    }
+
+    private Object[][] readRowGroup(int rowGroup, int[] projection) {
+        try {
+            Object[][] values = new Object[projection.length][];
+            for (int c = 0; c < projection.length; c++) {
+                values[c] = decode(readChunk(chunkOffsets[rowGroup][projection[c]]), rowGroupSizes[rowGroup]);
+            }
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized DataInputStream readChunk(long offset) throws IOException {
+        file.seek(offset);
+        int length = file.readInt();
+        byte[] compressed = new byte[file.readInt()];
+        file.readFully(compressed);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] data = new byte[length];
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int inflated = inflater.inflate(data, n, length - n);
+                // a truncated chunk runs out of input before its data is complete
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("corrupt chunk at " + offset);
+                n += inflated;
+            }
+            return new DataInputStream(new ByteArrayInputStream(data));
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt chunk at " + offset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static Object[] decode(DataInputStream chunk, int rows) throws IOException {
+        byte type = chunk.readByte();
+        byte[] nulls = new byte[(rows + 7) / 8];
+        if (chunk.readBoolean()) chunk.readFully(nulls);
+
+        Object[] values = new Object[rows];
+        switch (type) {
+            case ColumnarFile.LONG:
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    if (isNull(nulls, i)) continue;
+                    previous += Varints.readSigned(chunk);
+                    values[i] = previous;
+                }
+                break;
+            case ColumnarFile.DOUBLE:
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull(nulls, i)) values[i] = chunk.readDouble();
+                }
+                break;
+            case ColumnarFile.BOOLEAN:
+                byte[] bits = new byte[(rows + 7) / 8];
+                chunk.readFully(bits);
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull(nulls, i)) values[i] = isSet(bits, i);
+                }
+                break;
+            case ColumnarFile.STRING:
+                String[] dictionary = new String[(int) Varints.readUnsigned(chunk)];
+                for (int d = 0; d < dictionary.length; d++) {
+                    byte[] bytes = new byte[(int) Varints.readUnsigned(chunk)];
+                    chunk.readFully(bytes);
+                    dictionary[d] = new String(bytes, "UTF-8");
+                }
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull(nulls, i)) values[i] = dictionary[(int) Varints.readUnsigned(chunk)];
+                }
+                break;
+            default:
+                throw new IOException("unknown column type " + type);
+        }
+        return values;
+    }
+
+    private static boolean isNull(byte[] nulls, int i) {
+        return isSet(nulls, i);
+    }
+
+    private static boolean isSet(byte[] bits, int i) {
+        return (bits[i / 8] & (1 << (i % 8))) != 0;
+    }
+}
@@ -0,0 +1,326 @@
+package org.repodriller.persistence.csv;
+
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.persistence.PersistenceMechanismException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CSVFile} for visitors that write many rows from many threads.
+ * <p>
+ * Every thread formats its rows into a buffer of its own, so writing a row takes no lock that other threads
+ * contend for.  A buffer is written to the file, in one batch, when it is full, when the flush interval has passed,
+ * and when the file is closed.  Rows are never split, but rows of different threads may appear in a different
+ * order than they were written.  Values are escaped like in {@link CSVFile}, directly into the buffer.
+ * <p>
+ * Rows that could not be written stay in their buffer.  The first error of a periodic flush is thrown by the next
+ * {@link #write(Object...)}, {@link #flush()} or {@link #close()}.
+ * <p>
+ * The buffer of a thread that has not written anything between two flushes is dropped, so threads that are done
+ * with the file, e.g., the workers of a finished repository, do not keep their buffers.
+ */
+public class BufferedCSVFile implements PersistenceMechanism {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final FileChannel channel;
+    private final String[] header;
+    private final int bufferSize;
+    private final List<RowBuffer> buffers = new ArrayList<>();
+    private final ThreadLocal<RowBuffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+    private final ScheduledExecutorService flusher;
+    private volatile RuntimeException failure;
+    private volatile boolean closed;
+
+    public BufferedCSVFile(String fileName) {
+        this(fileName, null, false);
+    }
+
+    public BufferedCSVFile(String fileName, boolean append) {
+        this(fileName, null, append);
+    }
+
+    public BufferedCSVFile(String fileName, String[] header) {
+        this(fileName, header, false);
+    }
+
+    public BufferedCSVFile(String fileName, String[] header, boolean append) {
+        this(fileName, header, append, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param bufferSize          The number of characters each thread buffers before its rows are written
+     * @param flushIntervalMillis How often all buffers are written to the file, even if they are not full; 0 to only
+     *                            write full buffers (and all buffers on {@link #close()})
+     */
+    public BufferedCSVFile(String fileName, String[] header, boolean append, int bufferSize, long flushIntervalMillis) {
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive");
+        if (flushIntervalMillis < 0) throw new IllegalArgumentException("flushIntervalMillis must not be negative");
+
+        this.header = header;
+        this.bufferSize = bufferSize;
+        try {
+            channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (header != null) {
+            RowBuffer headerBuffer = newBuffer();
+            headerBuffer.append(header);
+            headerBuffer.flush();
+        }
+
+        if (flushIntervalMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "csv-flusher-" + fileName);
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public void write(Object... line) throws CSVFileFormatException {
+        if (header != null && header.length != line.length)
+            throw new CSVFileFormatException("CSV Header Columns Number Differs From Writer Columns Number.");
+        throwFailure();
+        if (closed) throw new PersistenceMechanismException("CSV file is already closed");
+
+        // the buffer of this thread may have been dropped while the thread did not write
+        while (!buffer.get().append(line)) {
+            buffer.remove();
+        }
+    }
+
+    /**
+     * Writes the buffers of all threads to the file.
+     */
+    @Override
+    public void flush() {
+        flushAll();
+        throwFailure();
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        // interrupting a flush would close the channel, so a running flush is allowed to finish
+        if (flusher != null) awaitTermination(flusher);
+        flushAll();
+        synchronized (buffers) {
+            for (RowBuffer rowBuffer : buffers) {
+                rowBuffer.drop();
+            }
+            buffers.clear();
+        }
+        buffer.remove();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new PersistenceMechanismException("error closing the CSV file", e);
+        }
+        throwFailure();
+    }
+
+    private static void awaitTermination(ScheduledExecutorService executor) {
+        executor.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private RowBuffer newBuffer() {
+        RowBuffer rowBuffer = new RowBuffer();
+        synchronized (buffers) {
+            buffers.add(rowBuffer);
+        }
+        return rowBuffer;
+    }
+
+    private void flushAll() {
+        List<RowBuffer> all;
+        synchronized (buffers) {
+            all = new ArrayList<>(buffers);
+        }
+        for (RowBuffer rowBuffer : all) {
+            try {
+                rowBuffer.flush();
+            } catch (RuntimeException e) {
+                // keep the first error, and do not let it cancel the periodic flushes
+                if (failure == null) failure = e;
+            }
+
+            if (rowBuffer.dropIfIdle()) {
+                synchronized (buffers) {
+                    buffers.remove(rowBuffer);
+                }
+            }
+        }
+    }
+
+    private void throwFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+
+    /**
+     * The rows of one thread.  Its lock is only contended while the buffer is flushed by another thread.
+     */
+    private class RowBuffer {
+        private final StringBuilder rows = new StringBuilder(bufferSize + 256);
+        private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer bytes;
+        private boolean appended = true;
+        private boolean dropped;
+
+        /**
+         * @return <code>false</code> if the buffer was dropped, so the row has to go into a new one
+         */
+        synchronized boolean append(Object[] line) {
+            if (dropped) return false;
+            appended = true;
+
+            if (line.length > 0) {
+                appendElt(line[0]);
+                for (int i = 1; i < line.length; i++) {
+                    rows.append(',');
+                    appendElt(line[i]);
+                }
+            }
+            rows.append(LINE_SEPARATOR);
+
+            if (rows.length() >= bufferSize) flush();
+            return true;
+        }
+
+        /**
+         * Drops the buffer if it is empty and nothing was appended since the last call.
+         *
+         * @return Whether the buffer was dropped
+         */
+        synchronized boolean dropIfIdle() {
+            if (appended || rows.length() > 0) {
+                appended = false;
+                return false;
+            }
+            drop();
+            return true;
+        }
+
+        synchronized void drop() {
+            dropped = true;
+            rows.setLength(0);
+            rows.trimToSize();
+            bytes = null;
+        }
+
+        private void appendElt(Object element) {
+            if (element == null) rows.append("null");
+            else if (element instanceof Integer || element instanceof Long || element instanceof Short || element instanceof Byte)
+                rows.append(((Number) element).longValue());
+            else if (element instanceof Boolean) rows.append(((Boolean) element).booleanValue());
+            else if (element instanceof CharSequence) appendEscaped((CharSequence) element);
+            else appendEscaped(element.toString());
+        }
+
+        /**
+         * Escapes like {@link org.apache.commons.lang3.StringEscapeUtils#escapeCsv(String)}: values that contain a
+         * comma, a quote or a line break are quoted, and their quotes are doubled.
+         */
+        private void appendEscaped(CharSequence value) {
+            if (!needsQuotes(value)) {
+                rows.append(value);
+                return;
+            }
+
+            rows.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') rows.append('"');
+                rows.append(c);
+            }
+            rows.append('"');
+        }
+
+        private boolean needsQuotes(CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\r' || c == '\n') return true;
+            }
+            return false;
+        }
+
+        synchronized void flush() {
+            if (rows.length() == 0) return;
+            if (bytes == null) bytes = ByteBuffer.allocate(Math.max(1024, (int) (bufferSize * encoder.maxBytesPerChar())));
+
+            // rows larger than the byte buffer take several writes, which must not interleave with other threads
+            synchronized (channel) {
+                long end = -1;
+                try {
+                    end = channel.size();
+                    CharBuffer chars = CharBuffer.wrap(rows);
+                    encoder.reset();
+                    while (encoder.encode(chars, bytes, true).isOverflow()) write();
+                    while (encoder.flush(bytes).isOverflow()) write();
+                    write();
+                } catch (IOException e) {
+                    // the rows are kept, so the next flush tries them again; what was written of them is cut off
+                    bytes.clear();
+                    truncate(end, e);
+                    throw new PersistenceMechanismException("error writing the CSV file", e);
+                }
+            }
+            rows.setLength(0);
+        }
+
+        private void truncate(long size, IOException failure) {
+            if (size < 0) return;
+            try {
+                channel.truncate(size);
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+
+        private void write() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.repodriller.scm;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Maps every commit of a Git repository to the set of local branches that contain it, i.e., to the branches whose
+ * tip can reach the commit (like <code>git branch --contains</code>).
+ * <p>
+ * The index is built by a single walk over the history that visits children before their parents.  Each commit
+ * passes its set of branches on to its parents, so the whole repository is processed in one pass instead of one
+ * history walk per commit and branch.  Commits with the same branches share the same set instance.
+ */
+class BranchIndex {
+
+    private final ObjectIdOwnerMap<Entry> entries;
+
+    private BranchIndex(ObjectIdOwnerMap<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return The short names of the branches that contain the given commit; the empty set if no branch contains it
+     */
+    Set<String> branchesOf(AnyObjectId commit) {
+        Entry entry = entries.get(commit);
+        return entry == null ? Collections.emptySet() : entry.branches;
+    }
+
+    static BranchIndex build(Repository repo) throws IOException {
+        List<String> names = new ArrayList<>();
+        Map<BitSet, Set<String>> distinctBranchSets = new HashMap<>();
+        ObjectIdOwnerMap<Entry> entries = new ObjectIdOwnerMap<>();
+
+        RevWalk walk = new RevWalk(repo) {
+            @Override
+            protected RevCommit createCommit(AnyObjectId id) {
+                return new BranchCommit(id);
+            }
+        };
+        try {
+            walk.setRetainBody(false);
+            walk.sort(RevSort.TOPO);
+
+            for (Ref ref : repo.getRefDatabase().getRefs(Constants.R_HEADS).values()) {
+                BranchCommit tip = parseTip(walk, ref.getObjectId());
+                if (tip == null) continue;
+
+                BitSet branch = new BitSet();
+                branch.set(names.size());
+                names.add(shortName(ref));
+
+                tip.branches = union(tip.branches, branch);
+                walk.markStart(tip);
+            }
+
+            for (RevCommit revCommit : walk) {
+                BranchCommit commit = (BranchCommit) revCommit;
+                BitSet branches = commit.branches;
+                Set<String> branchNames = distinctBranchSets.computeIfAbsent(branches, b -> namesOf(b, names));
+                entries.add(new Entry(commit, branchNames));
+
+                for (RevCommit parent : commit.getParents()) {
+                    BranchCommit p = (BranchCommit) parent;
+                    p.branches = union(p.branches, branches);
+                }
+                commit.branches = null;
+            }
+        } finally {
+            walk.release();
+        }
+
+        return new BranchIndex(entries);
+    }
+
+    private static BranchCommit parseTip(RevWalk walk, ObjectId id) throws IOException {
+        try {
+            return (BranchCommit) walk.parseCommit(id);
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            return null;
+        }
+    }
+
+    private static String shortName(Ref ref) {
+        return ref.getName().substring(ref.getName().lastIndexOf("/") + 1);
+    }
+
+    private static Set<String> namesOf(BitSet branches, List<String> names) {
+        Set<String> result = new HashSet<>();
+        for (int i = branches.nextSetBit(0); i >= 0; i = branches.nextSetBit(i + 1)) {
+            result.add(names.get(i));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Returns the union of both sets without modifying either of them.  Since sets are shared between commits,
+     * a new set is only allocated if the union differs from both arguments.
+     */
+    private static BitSet union(BitSet a, BitSet b) {
+        if (a == null || a == b) return b;
+        BitSet missingInA = (BitSet) b.clone();
+        missingInA.andNot(a);
+        if (missingInA.isEmpty()) return a;
+        missingInA.or(a);
+        return missingInA;
+    }
+
+    private static class BranchCommit extends RevCommit {
+        private static final long serialVersionUID = 1L;
+
+        BitSet branches;
+
+        BranchCommit(AnyObjectId id) {
+            super(id);
+        }
+    }
+
+    private static class Entry extends ObjectIdOwnerMap.Entry {
+        private static final long serialVersionUID = 1L;
+
+        final Set<String> branches;
+
+        Entry(AnyObjectId id, Set<String> branches) {
+            super(id);
+            this.branches = branches;
+        }
+    }
+}
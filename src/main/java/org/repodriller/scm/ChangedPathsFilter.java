@@ -0,0 +1,51 @@
+package org.repodriller.scm;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Includes the commits that change a path matched by a {@link TreeFilter}, compared to their first parent (which is
+ * what the modifications of a commit are computed against).  Unlike {@link RevWalk#setTreeFilter(TreeFilter)}, it
+ * does not rewrite the parents of merge commits.
+ */
+class ChangedPathsFilter extends RevFilter {
+
+    private final TreeFilter paths;
+
+    ChangedPathsFilter(TreeFilter paths) {
+        this.paths = paths;
+    }
+
+    @Override
+    public boolean include(RevWalk walker, RevCommit commit) throws IOException {
+        TreeWalk treeWalk = new TreeWalk(walker.getObjectReader());
+        if (commit.getParentCount() == 0) {
+            treeWalk.addTree(new EmptyTreeIterator());
+        } else {
+            RevCommit parent = commit.getParent(0);
+            walker.parseHeaders(parent);
+            treeWalk.addTree(parent.getTree());
+        }
+        treeWalk.addTree(commit.getTree());
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(AndTreeFilter.create(paths, TreeFilter.ANY_DIFF));
+        return treeWalk.next();
+    }
+
+    @Override
+    public boolean requiresCommitBody() {
+        return false;
+    }
+
+    @Override
+    public RevFilter clone() {
+        return new ChangedPathsFilter(paths.clone());
+    }
+}
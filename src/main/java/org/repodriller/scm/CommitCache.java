@@ -0,0 +1,279 @@
+package org.repodriller.scm;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Developer;
+import org.repodriller.domain.Modification;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Stores the commits read by a {@link GitRepository} on disk, so later mining runs over the same repository do not
+ * have to walk and diff the commits again.
+ * <p>
+ * Every commit is stored in its own file, named after its id.  Since commits never change, an entry stays valid as
+ * long as its id exists.  An entry holds the metadata of the commit and, per modification, the paths, modes and
+ * blob ids of both sides, together with the added and removed line counts.  Only the modifications kept by
+ * {@link GitRepository#limitNumberOfFiles(String, List)} are stored.  Diffs and source code are not stored: they are
+ * read from the blobs on first access, like for uncached commits.
+ * Branches are not stored either, as they change over time.
+ * <p>
+ * When the entries grow beyond the maximum size, the least recently used ones are evicted.
+ */
+class CommitCache {
+
+    private static final int FORMAT = 0x52444333; // "RDC3"
+    private static final long EVICT_TO_PERCENT = 90;
+    private static final long TOUCH_INTERVAL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static Logger log = Logger.getLogger(CommitCache.class);
+
+    private final GitRepository repository;
+    private final File dir;
+    private final long maxSizeInBytes;
+    private long sizeInBytes = -1;
+
+    CommitCache(GitRepository repository, File dir, long maxSizeInBytes) {
+        this.repository = repository;
+        this.dir = dir;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * @return The cached commit, or null if the cache has no (usable) entry for it
+     */
+    Commit get(AnyObjectId id, boolean withModifications) {
+        File file = fileOf(id);
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Commit commit = read(in, id, withModifications);
+            if (commit != null) touch(file);
+            return commit;
+        } catch (IOException | RuntimeException e) {
+            log.warn("ignoring unreadable cache entry " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param modifications The modifications of the commit, or <code>null</code> to cache only its header
+     * @param totalFiles    The number of files of the commit, which is more than the modifications when they were
+     *                      limited
+     */
+    void put(Commit commit, List<Modification> modifications, int totalFiles) {
+        File file = fileOf(ObjectId.fromString(commit.getHash()));
+        File tmp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                write(out, commit, modifications, totalFiles);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            added(file.length());
+        } catch (IOException e) {
+            log.warn("could not cache commit " + commit.getHash(), e);
+            tmp.delete();
+        }
+    }
+
+    private Commit read(DataInputStream in, AnyObjectId id, boolean withModifications) throws IOException {
+        if (in.readInt() != FORMAT) return null;
+        if (!readId(in).equals(id)) return null;
+
+        Developer author = repository.getDevelopers().get(readString(in), readString(in));
+        Developer committer = repository.getDevelopers().get(readString(in), readString(in));
+        GregorianCalendar authorDate = readDate(in);
+        GregorianCalendar committerDate = readDate(in);
+        String msg = readString(in);
+
+        int parentCount = in.readInt();
+        List<String> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            parents.add(readId(in).name());
+        }
+
+        boolean hasModifications = in.readBoolean();
+        if (withModifications && !hasModifications) return null;
+        // modifications scanned with other paths restricted do not count
+        if (withModifications && !readString(in).equals(repository.getPathScope())) return null;
+
+        Commit commit = repository.newCommit(id.name(), author, committer, authorDate, committerDate, msg, parents, false);
+        if (!withModifications) return commit;
+
+        int total = in.readInt();
+        int count = in.readInt();
+        // files left out of huge commits are missing when more files are allowed now
+        if (count < total && count < repository.getMaxNumberFilesInACommit()) return null;
+
+        List<Modification> modifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CachedDiffEntry diff = new CachedDiffEntry(in);
+            int added = in.readInt();
+            int removed = in.readInt();
+            modifications.add(new GitModification(repository, diff, added, removed));
+        }
+        commit.addModifications(repository.limitNumberOfFiles(id.name(), modifications));
+        return commit;
+    }
+
+    private void write(DataOutputStream out, Commit commit, List<Modification> modifications, int totalFiles)
+            throws IOException {
+        out.writeInt(FORMAT);
+        writeId(out, ObjectId.fromString(commit.getHash()));
+
+        writeString(out, commit.getAuthor().getName());
+        writeString(out, commit.getAuthor().getEmail());
+        writeString(out, commit.getCommitter().getName());
+        writeString(out, commit.getCommitter().getEmail());
+        writeDate(out, commit.getDate());
+        writeDate(out, commit.getCommitterDate());
+        writeString(out, commit.getMsg());
+
+        out.writeInt(commit.getParents().size());
+        for (String parent : commit.getParents()) {
+            writeId(out, ObjectId.fromString(parent));
+        }
+
+        out.writeBoolean(modifications != null);
+        if (modifications == null) return;
+
+        writeString(out, repository.getPathScope());
+        out.writeInt(totalFiles);
+        out.writeInt(modifications.size());
+        for (Modification m : modifications) {
+            CachedDiffEntry.write(out, ((GitModification) m).getDiffEntry());
+            out.writeInt(m.getAdded());
+            out.writeInt(m.getRemoved());
+        }
+    }
+
+    private File fileOf(AnyObjectId id) {
+        String name = id.name();
+        return new File(new File(dir, name.substring(0, 2)), name.substring(2));
+    }
+
+    /**
+     * Marks an entry as recently used.  To keep hits cheap, the modification time is only updated once a day.
+     */
+    private void touch(File file) {
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > TOUCH_INTERVAL_MILLIS) file.setLastModified(now);
+    }
+
+    private synchronized void added(long bytes) {
+        if (sizeInBytes < 0) sizeInBytes = entries().stream().mapToLong(File::length).sum();
+        else sizeInBytes += bytes;
+
+        if (sizeInBytes > maxSizeInBytes) evict();
+    }
+
+    private void evict() {
+        List<File> entries = entries();
+        Map<File, Long> lastUsed = new HashMap<>();
+        for (File entry : entries) lastUsed.put(entry, entry.lastModified());
+        entries.sort(Comparator.comparing(lastUsed::get));
+
+        long target = maxSizeInBytes / 100 * EVICT_TO_PERCENT;
+        sizeInBytes = entries.stream().mapToLong(File::length).sum();
+        for (Iterator<File> it = entries.iterator(); it.hasNext() && sizeInBytes > target; ) {
+            File entry = it.next();
+            long length = entry.length();
+            if (entry.delete()) sizeInBytes -= length;
+        }
+        log.info("evicted commit cache entries down to " + sizeInBytes + " bytes");
+    }
+
+    private List<File> entries() {
+        List<File> entries = new ArrayList<>();
+        File[] shards = dir.listFiles(File::isDirectory);
+        if (shards == null) return entries;
+
+        for (File shard : shards) {
+            File[] files = shard.listFiles(f -> f.isFile() && !f.getName().endsWith(".tmp"));
+            if (files != null) entries.addAll(Arrays.asList(files));
+        }
+        return entries;
+    }
+
+    private static ObjectId readId(DataInputStream in) throws IOException {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        in.readFully(raw);
+        return ObjectId.fromRaw(raw);
+    }
+
+    private static void writeId(DataOutputStream out, AnyObjectId id) throws IOException {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        id.copyRawTo(raw, 0);
+        out.write(raw);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static GregorianCalendar readDate(DataInputStream in) throws IOException {
+        GregorianCalendar date = new GregorianCalendar();
+        date.setTimeInMillis(in.readLong());
+        date.setTimeZone(TimeZone.getTimeZone(readString(in)));
+        return date;
+    }
+
+    private static void writeDate(DataOutputStream out, Calendar date) throws IOException {
+        out.writeLong(date.getTimeInMillis());
+        writeString(out, date.getTimeZone().getID());
+    }
+
+    /**
+     * A {@link DiffEntry} restored from the cache, which can be formatted like the entry it was stored from.
+     */
+    private static class CachedDiffEntry extends DiffEntry {
+
+        CachedDiffEntry(DataInputStream in) throws IOException {
+            changeType = ChangeType.valueOf(readString(in));
+            score = in.readInt();
+            oldPath = readString(in);
+            newPath = readString(in);
+            oldMode = FileMode.fromBits(in.readInt());
+            newMode = FileMode.fromBits(in.readInt());
+            oldId = AbbreviatedObjectId.fromObjectId(readId(in));
+            newId = AbbreviatedObjectId.fromObjectId(readId(in));
+        }
+
+        static void write(DataOutputStream out, DiffEntry diff) throws IOException {
+            writeString(out, diff.getChangeType().name());
+            out.writeInt(diff.getScore());
+            writeString(out, diff.getOldPath());
+            writeString(out, diff.getNewPath());
+            out.writeInt(diff.getOldMode().getBits());
+            out.writeInt(diff.getNewMode().getBits());
+            writeId(out, diff.getOldId().toObjectId());
+            writeId(out, diff.getNewId().toObjectId());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.repodriller.scm;
+
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Set;
+
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Developer;
+import org.repodriller.domain.Modification;
+
+/**
+ * A commit whose modifications are only scanned from the repository when they are first asked for.
+ */
+class GitCommit extends Commit {
+
+    private final GitRepository repository;
+
+    GitCommit(GitRepository repository, String hash, Developer author, Developer committer,
+              GregorianCalendar authorDate, GregorianCalendar committerDate, String msg, List<String> parents,
+              boolean merge, Set<String> branches, boolean isCommitInMainBranch) {
+        super(hash, author, committer, authorDate, authorDate.getTimeZone(), committerDate,
+                committerDate.getTimeZone(), msg, parents, merge, branches, isCommitInMainBranch);
+        this.repository = repository;
+    }
+
+    @Override
+    protected List<Modification> loadModifications() {
+        return repository.loadModifications(this);
+    }
+}
@@ -0,0 +1,69 @@
+package org.repodriller.scm;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.repodriller.domain.DiffEdit;
+import org.repodriller.domain.Modification;
+import org.repodriller.domain.ModificationType;
+
+/**
+ * A {@link Modification} of a Git commit that reads its diff and source code from the repository on first access,
+ * so visitors that only look at paths never load a blob.  Line counts and edits are taken from the edits JGit finds,
+ * without rendering the diff.
+ */
+class GitModification extends Modification {
+
+    private final GitRepository repository;
+    private final DiffEntry diffEntry;
+    private final int[] lineCounts;
+
+    GitModification(GitRepository repository, DiffEntry diffEntry) {
+        this(repository, diffEntry, null);
+    }
+
+    /**
+     * Creates a modification whose added and removed lines are already known.
+     */
+    GitModification(GitRepository repository, DiffEntry diffEntry, int added, int removed) {
+        this(repository, diffEntry, new int[] { added, removed });
+    }
+
+    private GitModification(GitRepository repository, DiffEntry diffEntry, int[] lineCounts) {
+        super(diffEntry.getOldPath(), diffEntry.getNewPath(),
+                Enum.valueOf(ModificationType.class, diffEntry.getChangeType().toString()));
+        this.repository = repository;
+        this.diffEntry = diffEntry;
+        this.lineCounts = lineCounts;
+    }
+
+    DiffEntry getDiffEntry() {
+        return diffEntry;
+    }
+
+    @Override
+    protected String loadDiff() {
+        if (wasDeleted()) return "";
+        return repository.getDiffText(diffEntry);
+    }
+
+    @Override
+    protected String loadSourceCode() {
+        if (wasDeleted()) return "";
+        return repository.getSourceCode(diffEntry);
+    }
+
+    @Override
+    protected List<DiffEdit> loadEdits() {
+        if (wasDeleted()) return Collections.emptyList();
+        return repository.getEdits(diffEntry);
+    }
+
+    @Override
+    protected int[] loadLineCounts() {
+        if (lineCounts != null) return lineCounts;
+        if (wasDeleted()) return new int[] { 0, 0 };
+        return repository.getLineCounts(diffEntry);
+    }
+}
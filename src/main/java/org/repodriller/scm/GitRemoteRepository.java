@@ -6,11 +6,13 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.domain.Commit;
+import org.repodriller.domain.DeveloperPool;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class GitRemoteRepository implements SCM {
 
@@ -110,11 +112,26 @@ public class GitRemoteRepository implements SCM {
         return tempGitRepository.getChangeSets();
     }
 
+    @Override
+    public Stream<ChangeSet> streamChangeSets(boolean reverse) {
+        return tempGitRepository.streamChangeSets(reverse);
+    }
+
+    @Override
+    public Stream<ChangeSet> streamChangeSetsSince(String commit, boolean reverse) {
+        return tempGitRepository.streamChangeSetsSince(commit, reverse);
+    }
+
     @Override
     public Commit getCommit(String id) {
         return tempGitRepository.getCommit(id);
     }
 
+    @Override
+    public long estimateMemory(Commit commit) {
+        return tempGitRepository.estimateMemory(commit);
+    }
+
     @Override
     public void checkout(String hash) {
         tempGitRepository.checkout(hash);
@@ -163,4 +180,19 @@ public class GitRemoteRepository implements SCM {
     public void omitModifications() {
         tempGitRepository.omitModifications();
     }
+
+    @Override
+    public void restrictToPaths(String... globs) {
+        tempGitRepository.restrictToPaths(globs);
+    }
+
+    @Override
+    public DeveloperPool getDevelopers() {
+        return tempGitRepository.getDevelopers();
+    }
+
+    @Override
+    public void release() {
+        tempGitRepository.release();
+    }
 }
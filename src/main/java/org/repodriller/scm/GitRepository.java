@@ -21,12 +21,13 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.CannotDeleteCurrentBranchException;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.api.errors.NotMergedException;
 import org.eclipse.jgit.blame.BlameResult;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.errors.AmbiguousObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
@@ -35,27 +36,49 @@ import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.DiffEdit;
 import org.repodriller.domain.Commit;
 import org.repodriller.domain.Developer;
-import org.repodriller.domain.ModificationType;
+import org.repodriller.domain.DeveloperPool;
+import org.repodriller.domain.Modification;
+import org.repodriller.metrics.Metrics;
+import org.repodriller.metrics.Timer;
 import org.repodriller.util.FileUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class GitRepository implements SCM {
 
     private static final int MAX_SIZE_OF_A_DIFF = 100000;
     private static final int DEFAULT_MAX_NUMBER_OF_FILES_IN_A_COMMIT = 5000;
+    private static final int COMMITS_PER_REV_WALK = 1000;
+    private static final long DEFAULT_COMMIT_CACHE_SIZE = 256L * 1024 * 1024;
+    private static final String COMMIT_CACHE_DIR = "repodriller";
+    // bytes of memory per byte of a blob: the diff text and the source code are UTF-16 strings
+    private static final int MEMORY_PER_BLOB_BYTE = 4;
+    private static final int MEMORY_PER_MODIFICATION = 1024;
     private static final String BRANCH_MM = "mm";
     private static final Set<String> UNDEFINED_BRANCHES = Collections.singleton("branch-info-omitted");
 
@@ -65,15 +88,27 @@ public class GitRepository implements SCM {
     private int maxSizeOfDiff;
 
     private static Logger log = Logger.getLogger(GitRepository.class);
+    private static final Timer SCAN_TIMER = Metrics.timer("git.scan");
+    private static final Timer DIFF_TIMER = Metrics.timer("git.diff");
+    private static final Timer EDIT_TIMER = Metrics.timer("git.edits");
+    private static final Timer LINE_COUNT_TIMER = Metrics.timer("git.lineCounts");
+    private static final Timer BLOB_TIMER = Metrics.timer("git.blob");
+    private static final Timer BRANCH_TIMER = Metrics.timer("git.branches");
     private boolean firstParentOnly;
     private boolean omitBranches = false;
     private boolean includeModifications = true;
+    private volatile BranchIndex branchIndex;
+    private CommitCache commitCache;
+    private TreeFilter pathFilter = TreeFilter.ALL;
+    private String pathScope = "";
+    private final DeveloperPool developers = new DeveloperPool();
 
     public GitRepository(String path, boolean firstParentOnly) {
         this.path = path;
         this.firstParentOnly = firstParentOnly;
         this.maxNumberFilesInACommit = checkMaxNumberOfFiles();
         this.maxSizeOfDiff = checkMaxSizeOfDiff();
+        newThreadResources();
     }
 
     public GitRepository(String path) {
@@ -90,6 +125,75 @@ public class GitRepository implements SCM {
         this.includeModifications = false;
     }
 
+    /**
+     * Restricts the walk and the diffs to the given paths: commits that do not change any of them compared to their
+     * first parent are not enumerated, and the modifications of the other commits only include matching files.  A
+     * file renamed into a matching path shows up as added.
+     *
+     * @param globs Paths relative to the root of the repository, e.g., <code>docs</code> or
+     *              <code>src/**&#47;*.java</code>.  See {@link PathGlobFilter} for the syntax.
+     */
+    @Override
+    public void restrictToPaths(String... globs) {
+        this.pathFilter = PathGlobFilter.create(globs);
+        this.pathScope = String.join("\n", globs);
+    }
+
+    @Override
+    public DeveloperPool getDevelopers() {
+        return developers;
+    }
+
+    /**
+     * Maps the names and emails of developers with the <code>.mailmap</code> file of the repository, if it has one.
+     * Call it before mining.
+     */
+    public void useMailmap() {
+        useMailmap(new File(path, ".mailmap").getPath());
+    }
+
+    /**
+     * Maps the names and emails of developers with a file in the format of Git's <code>.mailmap</code>, if it exists.
+     * Call it before mining.
+     */
+    public void useMailmap(String mailmap) {
+        File file = new File(mailmap);
+        if (!file.exists()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            developers.readMailmap(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("error reading " + mailmap, e);
+        }
+    }
+
+    /**
+     * @return The globs given to {@link #restrictToPaths(String...)}, one per line; empty if paths are not restricted
+     */
+    String getPathScope() {
+        return pathScope;
+    }
+
+    /**
+     * Stores the commits on disk, in the Git directory of the repository, so later mining runs do not have to read
+     * them again.  See {@link #cacheCommits(long)}.
+     */
+    public void cacheCommits() {
+        cacheCommits(DEFAULT_COMMIT_CACHE_SIZE);
+    }
+
+    /**
+     * Stores the commits on disk, in the Git directory of the repository, so later mining runs do not have to read
+     * them again.  The metadata, changed paths and line counts of a commit are read from the cache; diffs and source
+     * code are still read from the repository when they are first accessed.
+     *
+     * @param maxSizeInBytes The size up to which the cache may grow before the least recently used commits are evicted
+     */
+    public void cacheCommits(long maxSizeInBytes) {
+        if (maxSizeInBytes < 1) throw new IllegalArgumentException("maxSizeInBytes must be positive");
+        File dir = new File(new File(repo.get().getDirectory(), COMMIT_CACHE_DIR), "commits");
+        this.commitCache = new CommitCache(this, dir, maxSizeInBytes);
+    }
+
     private int checkMaxNumberOfFiles() {
         String prop = System.getProperty("git.maxfiles");
         if (prop == null) {
@@ -128,6 +232,30 @@ public class GitRepository implements SCM {
         return repos.toArray(new SCMRepository[repos.size()]);
     }
 
+    /**
+     * Opens the repositories in the given pool, since reading the first commit of a repository walks its whole
+     * history.  The pool is not shut down.
+     */
+    public static SCMRepository[] allProjectsIn(String path, boolean singleParentOnly, ExecutorService pool) {
+        List<Future<SCMRepository>> opened = new ArrayList<>();
+        for (String dir : FileUtils.getAllDirsIn(path)) {
+            opened.add(pool.submit(() -> singleProject(dir, singleParentOnly)));
+        }
+
+        SCMRepository[] repos = new SCMRepository[opened.size()];
+        try {
+            for (int i = 0; i < repos.length; i++) {
+                repos[i] = opened.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while opening the repositories in " + path, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("error opening the repositories in " + path, e.getCause());
+        }
+        return repos;
+    }
+
     public SCMRepository info() {
         RevWalk rw = null;
         Git git = null;
@@ -189,52 +317,109 @@ public class GitRepository implements SCM {
 
     @Override
     public List<ChangeSet> getChangeSets() {
+        try (Stream<ChangeSet> changeSets = streamChangeSets(false)) {
+            return changeSets.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Stream<ChangeSet> streamChangeSets(boolean reverse) {
+        return streamChangeSets(reverse, null);
+    }
+
+    /**
+     * Walks like {@link #streamChangeSets(boolean)}, but marks the commit as uninteresting, so the walk stops at it.
+     */
+    @Override
+    public Stream<ChangeSet> streamChangeSetsSince(String commit, boolean reverse) {
+        return streamChangeSets(reverse, commit);
+    }
+
+    /**
+     * @param since The commit whose history is left out, or <code>null</code>
+     */
+    private Stream<ChangeSet> streamChangeSets(boolean reverse, String since) {
         Git git = null;
+        RevWalk revWalk = null;
+        branchIndex = null;
         try {
             git = openRepository();
+            revWalk = new RevWalk(git.getRepository());
+
+            if (!firstParentOnly) markAllCommits(git, revWalk);
+            else markFirstParentsOnly(git, revWalk);
+            if (since != null) markUninteresting(git, revWalk, since);
+
+            if (pathFilter != TreeFilter.ALL) {
+                revWalk.setRevFilter(AndRevFilter.create(revWalk.getRevFilter(), new ChangedPathsFilter(pathFilter)));
+            }
+
+            if (reverse) revWalk.sort(RevSort.REVERSE, true);
 
-            List<ChangeSet> allCs;
-            if (!firstParentOnly) allCs = getAllCommits(git);
-            else allCs = firstParentsOnly(git);
+            final Git theGit = git;
+            final RevWalk theRevWalk = revWalk;
+            Iterator<ChangeSet> changeSets = new Iterator<ChangeSet>() {
+                private final Iterator<RevCommit> commits = theRevWalk.iterator();
 
-            return allCs;
+                @Override
+                public boolean hasNext() {
+                    return commits.hasNext();
+                }
+
+                @Override
+                public ChangeSet next() {
+                    return extractChangeSet(commits.next());
+                }
+            };
+
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(changeSets,
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        theRevWalk.release();
+                        theGit.close();
+                    });
         } catch (Exception e) {
-            throw new RuntimeException("error in getChangeSets for " + path, e);
-        } finally {
+            if (revWalk != null)
+                revWalk.release();
             if (git != null)
                 git.close();
+            throw new RuntimeException("error in getChangeSets for " + path, e);
         }
     }
 
-    private List<ChangeSet> firstParentsOnly(Git git) {
+    private void markFirstParentsOnly(Git git, RevWalk revWalk) throws IOException {
+        revWalk.setRevFilter(new FirstParentFilter());
+        revWalk.sort(RevSort.TOPO);
+        Ref headRef = git.getRepository().getRef(Constants.HEAD);
+        RevCommit headCommit = revWalk.parseCommit(headRef.getObjectId());
+        revWalk.markStart(headCommit);
+    }
 
+    private void markUninteresting(Git git, RevWalk revWalk, String commit) throws IOException {
+        ObjectId id = git.getRepository().resolve(commit);
+        if (id == null) return;
         try {
-            List<ChangeSet> allCs = new ArrayList<ChangeSet>();
-
-            RevWalk revWalk = new RevWalk(git.getRepository());
-            revWalk.setRevFilter(new FirstParentFilter());
-            revWalk.sort(RevSort.TOPO);
-            Ref headRef = git.getRepository().getRef(Constants.HEAD);
-            RevCommit headCommit = revWalk.parseCommit(headRef.getObjectId());
-            revWalk.markStart(headCommit);
-            for (RevCommit revCommit : revWalk) {
-                allCs.add(extractChangeSet(revCommit));
-            }
-
-            return allCs;
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            revWalk.markUninteresting(revWalk.parseCommit(id));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            // The commit is gone, e.g., after a force push, so the whole history is walked.
         }
     }
 
-    private List<ChangeSet> getAllCommits(Git git) throws GitAPIException, NoHeadException, IOException {
-        List<ChangeSet> allCs = new ArrayList<ChangeSet>();
-
-        for (RevCommit r : git.log().all().call()) {
-            allCs.add(extractChangeSet(r));
+    /**
+     * Marks the tips of all refs as starting points, just like <code>git log --all</code>.
+     */
+    private void markAllCommits(Git git, RevWalk revWalk) throws IOException {
+        Repository repo = git.getRepository();
+        for (Ref ref : repo.getAllRefs().values()) {
+            if (!ref.isPeeled()) ref = repo.peel(ref);
+            ObjectId objectId = ref.getPeeledObjectId();
+            if (objectId == null) objectId = ref.getObjectId();
+            try {
+                revWalk.markStart(revWalk.parseCommit(objectId));
+            } catch (MissingObjectException | IncorrectObjectTypeException e) {
+                // The ref does not point to a commit, so it is no starting point.
+            }
         }
-        return allCs;
     }
 
     private ChangeSet extractChangeSet(RevCommit r) {
@@ -253,113 +438,307 @@ public class GitRepository implements SCM {
         return date;
     }
 
-    ThreadLocal<Git> git = ThreadLocal.withInitial(new Supplier<Git>() {
-        @Override
-        public Git get() {
-            try {
-                return openRepository();
-            } catch (IOException | GitAPIException e) {
-                throw new RuntimeException("Failed to open repository.", e);
+    volatile ThreadLocal<Git> git;
+    volatile ThreadLocal<Repository> repo;
+
+    /**
+     * Each thread reads commits and their diffs through its own {@link CommitReader}, so the diff machinery is set
+     * up once per thread instead of once per commit and file.
+     */
+    volatile ThreadLocal<CommitReader> commitReader;
+
+    /** What the threads have opened, so {@link #release()} can close it */
+    private final Set<Git> threadGits = ConcurrentHashMap.newKeySet();
+    private final Set<CommitReader> threadReaders = ConcurrentHashMap.newKeySet();
+
+    private void newThreadResources() {
+        git = ThreadLocal.withInitial(new Supplier<Git>() {
+            @Override
+            public Git get() {
+                try {
+                    Git opened = openRepository();
+                    threadGits.add(opened);
+                    return opened;
+                } catch (IOException | GitAPIException e) {
+                    throw new RuntimeException("Failed to open repository.", e);
+                }
+            }
+        });
+
+        repo = ThreadLocal.withInitial(new Supplier<Repository>() {
+            @Override
+            public Repository get() {
+                return git.get().getRepository();
+            }
+        });
+
+        commitReader = ThreadLocal.withInitial(new Supplier<CommitReader>() {
+            @Override
+            public CommitReader get() {
+                CommitReader reader = new CommitReader(repo.get());
+                threadReaders.add(reader);
+                return reader;
+            }
+        });
+    }
+
+    /**
+     * Closes the repositories and readers the threads have opened, and forgets the branches of the commits.  Threads
+     * that read from the repository later open them again.  Must not be called while other threads read from the
+     * repository.
+     */
+    @Override
+    public void release() {
+        ThreadLocal<Git> oldGit = git;
+        ThreadLocal<Repository> oldRepo = repo;
+        ThreadLocal<CommitReader> oldReader = commitReader;
+        // the values of the other threads go away with the old thread locals
+        newThreadResources();
+        oldReader.remove();
+        oldRepo.remove();
+        oldGit.remove();
+
+        for (CommitReader reader : threadReaders) {
+            reader.release();
+        }
+        threadReaders.clear();
+        for (Git opened : threadGits) {
+            opened.close();
+        }
+        threadGits.clear();
+        branchIndex = null;
+    }
+
+    /**
+     * Thread-confined tools for reading commits.  The commits are parsed by a single {@link RevWalk} (and thus a single
+     * {@link ObjectReader}), which is disposed of every {@value #COMMITS_PER_REV_WALK} commits so it does not
+     * accumulate the whole history.  One {@link DiffFormatter} detects the changes (and renames) of a commit, another
+     * one formats the diffs of its files into a buffer that is reset for every file.
+     */
+    private class CommitReader {
+        final RevWalk revWalk;
+        final DiffFormatter scanFormatter;
+        final ByteArrayOutputStream diffText;
+        final DiffFormatter textFormatter;
+        int parsedCommits;
+
+        CommitReader(Repository repo) {
+            revWalk = new RevWalk(repo);
+
+            scanFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+            scanFormatter.setBinaryFileThreshold(2 * 1024); // 2 mb max a file
+            scanFormatter.setRepository(repo);
+            scanFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+            scanFormatter.setDetectRenames(true);
+            setContext(scanFormatter);
+
+            diffText = new ByteArrayOutputStream();
+            textFormatter = new DiffFormatter(diffText);
+            textFormatter.setRepository(repo);
+        }
+
+        ObjectId resolve(Repository repo, String id) throws IOException {
+            ObjectId objectId = ObjectId.isId(id) ? ObjectId.fromString(id) : repo.resolve(id);
+            if (objectId == null) throw new RuntimeException("commit " + id + " does not exist");
+            return objectId;
+        }
+
+        RevCommit parseCommit(ObjectId id) throws IOException {
+            if (parsedCommits++ == COMMITS_PER_REV_WALK) {
+                revWalk.dispose();
+                parsedCommits = 1;
+            }
+            return revWalk.parseCommit(id);
+        }
+
+        List<DiffEntry> diffs(RevCommit commit) throws IOException {
+            scanFormatter.setPathFilter(pathFilter);
+            if (commit.getParentCount() == 0) {
+                return scanFormatter.scan(new EmptyTreeIterator(),
+                        new CanonicalTreeParser(null, revWalk.getObjectReader(), commit.getTree()));
             }
+
+            RevCommit parent = commit.getParent(0);
+            revWalk.parseHeaders(parent);
+            return scanFormatter.scan(parent.getTree(), commit.getTree());
+        }
+
+        String diffText(DiffEntry diff) throws IOException {
+            diffText.reset();
+            textFormatter.format(diff);
+            textFormatter.flush();
+            return diffText.toString("UTF-8");
         }
-    });
 
-    ThreadLocal<Repository> repo = ThreadLocal.withInitial(new Supplier<Repository>() {
-        @Override
-        public Repository get() {
-            return git.get().getRepository();
+        EditList edits(DiffEntry diff) throws IOException {
+            return textFormatter.toFileHeader(diff).toEditList();
         }
-    });
+
+        int[] lineCounts(DiffEntry diff) throws IOException {
+            int added = 0;
+            int removed = 0;
+            for (Edit edit : edits(diff)) {
+                added += edit.getEndB() - edit.getBeginB();
+                removed += edit.getEndA() - edit.getBeginA();
+            }
+            return new int[] { added, removed };
+        }
+
+        /**
+         * @return The size of a blob; 0 for missing files and submodules
+         */
+        long size(FileMode mode, AbbreviatedObjectId id) throws IOException {
+            if (mode.getObjectType() != Constants.OBJ_BLOB || !id.isComplete()) return 0;
+            ObjectId objectId = id.toObjectId();
+            if (objectId.equals(ObjectId.zeroId())) return 0;
+            return revWalk.getObjectReader().getObjectSize(objectId, Constants.OBJ_BLOB);
+        }
+
+        byte[] content(AnyObjectId blob) throws IOException {
+            return revWalk.getObjectReader().open(blob).getBytes();
+        }
+
+        void release() {
+            revWalk.release();
+            scanFormatter.release();
+            textFormatter.release();
+        }
+    }
 
     @Override
     public Commit getCommit(String id) {
         try {
-            Git git = this.git.get();
             Repository repo = this.repo.get();
-            Iterable<RevCommit> commits = git.log().add(repo.resolve(id)).call();
-            Commit theCommit = null;
-
-            for (RevCommit jgitCommit : commits) {
-
-                Developer author = new Developer(jgitCommit.getAuthorIdent().getName(),
-                        jgitCommit.getAuthorIdent().getEmailAddress());
-                Developer committer = new Developer(jgitCommit.getCommitterIdent().getName(),
-                        jgitCommit.getCommitterIdent().getEmailAddress());
+            CommitReader reader = commitReader.get();
+            ObjectId objectId = reader.resolve(repo, id);
 
-                TimeZone authorTimeZone = jgitCommit.getAuthorIdent().getTimeZone();
-                TimeZone committerTimeZone = jgitCommit.getCommitterIdent().getTimeZone();
+            if (commitCache != null) {
+                Commit cached = commitCache.get(objectId, includeModifications);
+                if (cached != null) return cached;
+            }
 
-                String msg = jgitCommit.getFullMessage().trim();
-                final String hash = getCommitHash(jgitCommit);
-                final List<String> parents = getParents(jgitCommit);
+            RevCommit jgitCommit = reader.parseCommit(objectId);
 
-                GregorianCalendar authorDate = new GregorianCalendar();
-                authorDate.setTime(jgitCommit.getAuthorIdent().getWhen());
-                authorDate.setTimeZone(jgitCommit.getAuthorIdent().getTimeZone());
+            PersonIdent authorIdent = jgitCommit.getAuthorIdent();
+            PersonIdent committerIdent = jgitCommit.getCommitterIdent();
 
-                GregorianCalendar committerDate = new GregorianCalendar();
-                committerDate.setTime(jgitCommit.getCommitterIdent().getWhen());
-                committerDate.setTimeZone(jgitCommit.getCommitterIdent().getTimeZone());
+            Developer author = developers.get(authorIdent.getName(), authorIdent.getEmailAddress());
+            Developer committer = developers.get(committerIdent.getName(), committerIdent.getEmailAddress());
 
-                boolean merge = false;
-                if (jgitCommit.getParentCount() > 1) merge = true;
+            String msg = jgitCommit.getFullMessage().trim();
+            final String hash = getCommitHash(jgitCommit);
+            final List<String> parents = getParents(jgitCommit);
 
-                final Set<String> branches;
-                final boolean isCommitInMainBranch;
+            GregorianCalendar authorDate = new GregorianCalendar();
+            authorDate.setTime(authorIdent.getWhen());
+            authorDate.setTimeZone(authorIdent.getTimeZone());
 
-                if (omitBranches) {
-                    branches = UNDEFINED_BRANCHES;
-                    isCommitInMainBranch = true;
-                } else {
-                    branches = getBranches(git, hash);
-                    isCommitInMainBranch = branches.contains(this.mainBranchName);
-                }
+            GregorianCalendar committerDate = new GregorianCalendar();
+            committerDate.setTime(committerIdent.getWhen());
+            committerDate.setTimeZone(committerIdent.getTimeZone());
 
-                theCommit = new Commit(hash, author, committer, authorDate, authorTimeZone, committerDate, committerTimeZone, msg, parents, merge, branches, isCommitInMainBranch);
+            Commit theCommit = newCommit(hash, author, committer, authorDate, committerDate, msg, parents,
+                    includeModifications);
 
-                if (includeModifications) {
-                    addModifications(id, repo, theCommit, jgitCommit);
-                }
-
-                break;
+            if (commitCache != null && !includeModifications) {
+                commitCache.put(theCommit, null, 0);
             }
 
             return theCommit;
         } catch (Exception e) {
             throw new RuntimeException("error detailing " + id + " in " + path, e);
-        } finally {
         }
     }
 
-    private void addModifications(String id, Repository repo, Commit theCommit, RevCommit jgitCommit) throws IOException {
-        List<DiffEntry> diffsForTheCommit = diffsForTheCommit(repo, jgitCommit);
-        if (diffsForTheCommit.size() > this.getMaxNumberFilesInACommit()) {
-            log.warn("commit " + id + " has more than files than the limit");
-            throw new RuntimeException("commit " + id + " too big (too many files), sorry");
+    /**
+     * Estimates the memory of a commit from the sizes of the blobs it changes, without reading them.
+     */
+    @Override
+    public long estimateMemory(Commit commit) {
+        try {
+            CommitReader reader = commitReader.get();
+            long bytes = 0;
+            for (Modification m : commit.getModifications()) {
+                bytes += MEMORY_PER_MODIFICATION;
+                if (!(m instanceof GitModification)) continue;
+
+                DiffEntry diff = ((GitModification) m).getDiffEntry();
+                bytes += MEMORY_PER_BLOB_BYTE * (reader.size(diff.getOldMode(), diff.getOldId())
+                        + reader.size(diff.getNewMode(), diff.getNewId()));
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new RuntimeException("error estimating " + commit.getHash() + " in " + path, e);
         }
+    }
 
-        for (DiffEntry diff : diffsForTheCommit) {
+    /**
+     * Creates a commit and attaches its branches.
+     *
+     * @param lazyModifications Whether the commit scans its modifications when they are first asked for; otherwise,
+     *                          it has none until they are added
+     */
+    Commit newCommit(String hash, Developer author, Developer committer, GregorianCalendar authorDate,
+                     GregorianCalendar committerDate, String msg, List<String> parents, boolean lazyModifications)
+            throws IOException {
+        boolean merge = false;
+        if (parents.size() > 1) merge = true;
+
+        final Set<String> branches;
+        final boolean isCommitInMainBranch;
+
+        if (omitBranches) {
+            branches = UNDEFINED_BRANCHES;
+            isCommitInMainBranch = true;
+        } else {
+            long start = System.nanoTime();
+            branches = getBranchIndex().branchesOf(ObjectId.fromString(hash));
+            isCommitInMainBranch = branches.contains(this.mainBranchName);
+            BRANCH_TIMER.stop(start);
+        }
 
-            ModificationType change = Enum.valueOf(ModificationType.class,
-                    diff.getChangeType().toString());
+        if (lazyModifications) {
+            return new GitCommit(this, hash, author, committer, authorDate, committerDate, msg, parents, merge, branches, isCommitInMainBranch);
+        }
+        return new Commit(hash, author, committer, authorDate, authorDate.getTimeZone(), committerDate, committerDate.getTimeZone(), msg, parents, merge, branches, isCommitInMainBranch);
+    }
 
-            String oldPath = diff.getOldPath();
-            String newPath = diff.getNewPath();
+    /**
+     * @return The first {@link #getMaxNumberFilesInACommit()} modifications
+     */
+    List<Modification> limitNumberOfFiles(String id, List<Modification> modifications) {
+        if (modifications.size() <= this.getMaxNumberFilesInACommit()) return modifications;
 
-            String diffText = "";
-            String sc = "";
-            if (diff.getChangeType() != ChangeType.DELETE) {
-                diffText = getDiffText(repo, diff);
-                sc = getSourceCode(repo, diff);
-            }
+        log.warn("commit " + id + " has " + modifications.size() + " files, only the first " +
+                getMaxNumberFilesInACommit() + " are kept");
+        return new ArrayList<>(modifications.subList(0, getMaxNumberFilesInACommit()));
+    }
 
-            if (diffText.length() > maxSizeOfDiff) {
-                log.error("diff for " + newPath + " too big");
-                diffText = "-- TOO BIG --";
+    /**
+     * Scans the modifications of a commit created by {@link #getCommit(String)}, on the calling thread, and caches
+     * the commit if caching is enabled.
+     */
+    List<Modification> loadModifications(Commit commit) {
+        String id = commit.getHash();
+        try {
+            long start = System.nanoTime();
+            CommitReader reader = commitReader.get();
+            RevCommit jgitCommit = reader.parseCommit(ObjectId.fromString(id));
+            List<DiffEntry> diffsForTheCommit = reader.diffs(jgitCommit);
+            SCAN_TIMER.stop(start);
+
+            List<Modification> modifications = new ArrayList<>(diffsForTheCommit.size());
+            for (DiffEntry diff : diffsForTheCommit) {
+                modifications.add(new GitModification(this, diff));
             }
 
-            theCommit.addModification(oldPath, newPath, change, diffText, sc);
-
+            List<Modification> limited = limitNumberOfFiles(id, modifications);
+            if (commitCache != null) {
+                commitCache.put(commit, limited, modifications.size());
+            }
+            return limited;
+        } catch (IOException e) {
+            throw new RuntimeException("error detailing " + id + " in " + path, e);
         }
     }
 
@@ -386,43 +765,22 @@ public class GitRepository implements SCM {
         return parents;
     }
 
-    private Set<String> getBranches(Git git, String hash) throws GitAPIException {
-        List<Ref> gitBranches = git.branchList().setContains(hash).call();
-        Set<String> mappedBranches = gitBranches.stream()
-                .map(
-                        (ref) -> ref.getName().substring(ref.getName().lastIndexOf("/") + 1))
-                .collect(Collectors.toSet());
-        return mappedBranches;
-    }
-
-    private List<DiffEntry> diffsForTheCommit(Repository repo, RevCommit commit)
-            throws IOException, AmbiguousObjectException, IncorrectObjectTypeException {
-
-        AnyObjectId currentCommit = repo.resolve(commit.getName());
-        AnyObjectId parentCommit = commit.getParentCount() > 0
-                ? repo.resolve(commit.getParent(0).getName()) : null;
-
-        DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
-        df.setBinaryFileThreshold(2 * 1024); // 2 mb max a file
-        df.setRepository(repo);
-        df.setDiffComparator(RawTextComparator.DEFAULT);
-        df.setDetectRenames(true);
-        setContext(df);
-
-        List<DiffEntry> diffs = null;
-
-        if (parentCommit == null) {
-            RevWalk rw = new RevWalk(repo);
-            diffs = df.scan(new EmptyTreeIterator(),
-                    new CanonicalTreeParser(null, rw.getObjectReader(), commit.getTree()));
-            rw.release();
-        } else {
-            diffs = df.scan(parentCommit, currentCommit);
+    /**
+     * @return The branch index of the current mining run; it is built on first use and discarded whenever a new
+     * enumeration of the change sets starts or the branches of the repository are changed.
+     */
+    private BranchIndex getBranchIndex() throws IOException {
+        BranchIndex index = branchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = branchIndex;
+                if (index == null) {
+                    index = BranchIndex.build(repo.get());
+                    branchIndex = index;
+                }
+            }
         }
-
-        df.release();
-
-        return diffs;
+        return index;
     }
 
     private void setContext(DiffFormatter df) {
@@ -431,37 +789,98 @@ public class GitRepository implements SCM {
         df.setContext(Integer.parseInt(System.getProperty("git.diffcontext")));
     }
 
-    private String getSourceCode(Repository repo, DiffEntry diff) throws MissingObjectException, IOException, UnsupportedEncodingException {
+    String getSourceCode(DiffEntry diff) {
+        long start = System.nanoTime();
         try {
-            ObjectReader reader = repo.newObjectReader();
-            byte[] bytes = reader.open(diff.getNewId().toObjectId()).getBytes();
+            byte[] bytes = commitReader.get().content(diff.getNewId().toObjectId());
             return new String(bytes, "utf-8");
         } catch (Throwable e) {
             return "";
+        } finally {
+            BLOB_TIMER.stop(start);
         }
     }
 
-    private String getDiffText(Repository repo, DiffEntry diff)
-            throws IOException, UnsupportedEncodingException {
-        DiffFormatter df2 = null;
+    /**
+     * Counts the added and removed lines like <code>git diff --numstat</code> does, without formatting the diff.
+     */
+    int[] getLineCounts(DiffEntry diff) {
+        long start = System.nanoTime();
         try {
-            String diffText;
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            df2 = new DiffFormatter(out);
-            df2.setRepository(repo);
-            df2.format(diff);
-            diffText = out.toString("UTF-8");
-            return diffText;
+            return commitReader.get().lineCounts(diff);
+        } catch (Throwable e) {
+            return new int[] { 0, 0 };
+        } finally {
+            LINE_COUNT_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * @return The edits JGit finds in a file; the text of their lines is read from the blobs when it is asked for
+     */
+    List<DiffEdit> getEdits(DiffEntry diff) {
+        EditList edits;
+        long start = System.nanoTime();
+        try {
+            edits = commitReader.get().edits(diff);
+        } catch (IOException | RuntimeException e) {
+            log.error("could not find the edits of " + diff.getNewPath() + " in " + path, e);
+            return Collections.emptyList();
+        } finally {
+            EDIT_TIMER.stop(start);
+        }
+
+        IntFunction<String> oldFile = linesOf(diff.getOldId());
+        IntFunction<String> newFile = linesOf(diff.getNewId());
+        List<DiffEdit> result = new ArrayList<>(edits.size());
+        for (Edit edit : edits) {
+            result.add(new DiffEdit(edit.getBeginA(), edit.getEndA(), edit.getBeginB(), edit.getEndB(), oldFile, newFile));
+        }
+        return result;
+    }
+
+    private IntFunction<String> linesOf(AbbreviatedObjectId blob) {
+        return new IntFunction<String>() {
+            private RawText text;
+
+            @Override
+            public synchronized String apply(int line) {
+                if (text == null) {
+                    long start = System.nanoTime();
+                    try {
+                        text = new RawText(commitReader.get().content(blob.toObjectId()));
+                    } catch (IOException e) {
+                        throw new RuntimeException("error reading " + blob.name() + " in " + path, e);
+                    } finally {
+                        BLOB_TIMER.stop(start);
+                    }
+                }
+                return text.getString(line);
+            }
+        };
+    }
+
+    String getDiffText(DiffEntry diff) {
+        String diffText;
+        long start = System.nanoTime();
+        try {
+            diffText = commitReader.get().diffText(diff);
         } catch (Throwable e) {
             return "";
         } finally {
-            if (df2 != null)
-                df2.release();
+            DIFF_TIMER.stop(start);
+        }
+
+        if (diffText.length() > maxSizeOfDiff) {
+            log.error("diff for " + diff.getNewPath() + " too big");
+            diffText = "-- TOO BIG --";
         }
+        return diffText;
     }
 
     public synchronized void checkout(String hash) {
         Git git = null;
+        branchIndex = null;
         try {
             git = openRepository();
             git.reset().setMode(ResetType.HARD).call();
@@ -498,6 +917,7 @@ public class GitRepository implements SCM {
 
     public synchronized void reset() {
         Git git = null;
+        branchIndex = null;
         try {
             git = openRepository();
 
@@ -518,7 +938,9 @@ public class GitRepository implements SCM {
 
     @Override
     public long totalCommits() {
-        return getChangeSets().size();
+        try (Stream<ChangeSet> changeSets = streamChangeSets(false)) {
+            return changeSets.count();
+        }
     }
 
     @Override
@@ -0,0 +1,112 @@
+package org.repodriller.scm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Includes the files whose paths match a glob, relative to the root of the repository.  <code>*</code> and
+ * <code>?</code> match within a directory, <code>**</code> matches any number of directories, e.g.,
+ * <code>src/**&#47;*.java</code>.  Directories are only entered if files below them can match.
+ */
+class PathGlobFilter extends TreeFilter {
+
+    private final String glob;
+    private final Pattern[] segments;
+
+    private PathGlobFilter(String glob) {
+        this.glob = glob;
+        String[] parts = glob.split("/");
+        this.segments = new Pattern[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            segments[i] = parts[i].equals("**") ? null : Pattern.compile(toRegex(parts[i]));
+        }
+    }
+
+    /**
+     * Creates the cheapest filter for the globs: plain paths become {@link PathFilter}s, <code>**&#47;*.ext</code>
+     * becomes a {@link PathSuffixFilter}, and anything else a {@link PathGlobFilter}.
+     */
+    static TreeFilter create(String... globs) {
+        if (globs.length == 0) throw new IllegalArgumentException("at least one path is required");
+
+        List<TreeFilter> filters = new ArrayList<>(globs.length);
+        for (String glob : globs) {
+            String path = glob.replaceAll("^/+|/+$", "");
+            if (path.isEmpty()) throw new IllegalArgumentException("invalid path: '" + glob + "'");
+
+            if (!hasWildcards(path)) {
+                filters.add(PathFilter.create(path));
+            } else if (isSuffix(path)) {
+                filters.add(PathSuffixFilter.create(path.substring(4)));
+            } else {
+                filters.add(new PathGlobFilter(path));
+            }
+        }
+        return filters.size() == 1 ? filters.get(0) : OrTreeFilter.create(filters);
+    }
+
+    @Override
+    public boolean include(TreeWalk walker) {
+        return matches(walker.getPathString().split("/"), 0, 0, walker.isSubtree());
+    }
+
+    /**
+     * @param directory Whether the path is a directory, which matches if any path below it can
+     */
+    private boolean matches(String[] path, int g, int p, boolean directory) {
+        if (p == path.length) {
+            if (directory) return true;
+            for (int i = g; i < segments.length; i++) {
+                if (segments[i] != null) return false;
+            }
+            return true;
+        }
+        if (g == segments.length) return false;
+
+        if (segments[g] == null) {
+            return matches(path, g + 1, p, directory) || matches(path, g, p + 1, directory);
+        }
+        return segments[g].matcher(path[p]).matches() && matches(path, g + 1, p + 1, directory);
+    }
+
+    @Override
+    public boolean shouldBeRecursive() {
+        return true;
+    }
+
+    @Override
+    public TreeFilter clone() {
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "PATH_GLOB(" + glob + ")";
+    }
+
+    private static boolean isSuffix(String glob) {
+        String suffix = glob.startsWith("**/*") ? glob.substring(4) : "";
+        return !suffix.isEmpty() && suffix.indexOf('/') < 0 && !hasWildcards(suffix);
+    }
+
+    private static boolean hasWildcards(String glob) {
+        return glob.indexOf('*') >= 0 || glob.indexOf('?') >= 0;
+    }
+
+    private static String toRegex(String segment) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : segment.toCharArray()) {
+            if (c == '*') regex.append("[^/]*");
+            else if (c == '?') regex.append("[^/]");
+            else regex.append(Pattern.quote(String.valueOf(c)));
+        }
+        return regex.toString();
+    }
+}
@@ -18,14 +18,66 @@ package org.repodriller.scm;
 
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.domain.Commit;
+import org.repodriller.domain.DeveloperPool;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SCM {
     List<ChangeSet> getChangeSets();
 
+    /**
+     * Lazily enumerates the change sets that {@link #getChangeSets()} returns, so that processing can start before
+     * the whole history has been read.  The returned stream may hold on to resources of the repository and must be
+     * closed after use.
+     * <p>
+     * The default implementation is an adapter around {@link #getChangeSets()} and is therefore not lazy.</p>
+     *
+     * @param reverse If <code>true</code>, the change sets are returned in the opposite order of {@link
+     *                #getChangeSets()}.
+     */
+    default Stream<ChangeSet> streamChangeSets(boolean reverse) {
+        List<ChangeSet> all = new ArrayList<>(getChangeSets());
+        if (reverse) Collections.reverse(all);
+        return all.stream();
+    }
+
+    /**
+     * Like {@link #streamChangeSets(boolean)}, but leaves out the given commit and every change set in its history, so
+     * only the change sets added since are enumerated.  If the commit is not part of the history (anymore), all change
+     * sets are.
+     * <p>
+     * The default implementation keeps the change sets of {@link #getChangeSets()} that lie between the head and the
+     * commit, which is only correct for linear histories, and is not lazy.</p>
+     */
+    default Stream<ChangeSet> streamChangeSetsSince(String commit, boolean reverse) {
+        List<ChangeSet> all = new ArrayList<>(getChangeSets());
+        boolean oldestFirst = !all.isEmpty() && !all.get(0).getId().equals(getHead().getId());
+        if (oldestFirst) Collections.reverse(all);
+
+        List<ChangeSet> added = new ArrayList<>();
+        for (ChangeSet cs : all) {
+            if (cs.getId().equals(commit)) break;
+            added.add(cs);
+        }
+        if (oldestFirst != reverse) Collections.reverse(added);
+        return added.stream();
+    }
+
     Commit getCommit(String id);
 
+    /**
+     * Roughly estimates how much memory the diffs and the source code of a commit take once they are loaded, e.g., to
+     * limit how many huge commits are processed at the same time.
+     *
+     * @return The estimate in bytes; 0 if the SCM cannot tell
+     */
+    default long estimateMemory(Commit commit) {
+        return 0;
+    }
+
     ChangeSet getHead();
 
     List<RepositoryFile> files();
@@ -44,7 +96,7 @@ public interface SCM {
     SCMRepository info();
 
     /**
-     * Turn off getting branch information (possibly slow operation)
+     * Turn off getting branch information (requires a walk over the whole history once per mining run)
      */
     void omitBranches();
 
@@ -53,4 +105,32 @@ public interface SCM {
      * skipped by repodriller.) Whether or not this operation is actually honored by the SCM is unspecified.
      */
     void omitModifications();
+
+    /**
+     * Only mine the given paths: commits that do not change any of them are skipped, and the modifications of the
+     * other commits only include the matching files.  Like {@link #omitModifications()}, this is a hint: by default,
+     * all paths are mined.
+     *
+     * @param globs Paths relative to the root of the repository; <code>*</code> and <code>?</code> match within a
+     *              directory, <code>**</code> matches any number of directories
+     */
+    default void restrictToPaths(String... globs) {
+    }
+
+    /**
+     * Releases what the SCM holds on to between reads, e.g., the files the threads that read commits keep open.  Later
+     * reads open them again.  Does nothing by default.
+     */
+    default void release() {
+    }
+
+    /**
+     * By default, every call returns a new, empty pool that is not shared with the commits; SCMs that pool their
+     * developers override this.
+     *
+     * @return The authors and committers of the commits read so far; see {@link DeveloperPool}
+     */
+    default DeveloperPool getDevelopers() {
+        return new DeveloperPool();
+    }
 }
@@ -16,6 +16,9 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Juliano Silva
@@ -24,6 +27,7 @@ public class SubversionRepository implements SCM {
 
     private static final int MAX_SIZE_OF_A_DIFF = 100000;
     private static final int DEFAULT_MAX_NUMBER_OF_FILES_IN_A_COMMIT = 50;
+    private static final long LOG_PAGE_SIZE = 1000;
 
     private static Logger log = Logger.getLogger(SubversionRepository.class);
     private String path;
@@ -32,6 +36,7 @@ public class SubversionRepository implements SCM {
     private String workingCopyPath;
     private Integer maxNumberFilesInACommit;
     private boolean includeModifications = true;
+    private final DeveloperPool developers = new DeveloperPool();
 
     public SubversionRepository(String path, String username, String password) {
         this(path, username, password, DEFAULT_MAX_NUMBER_OF_FILES_IN_A_COMMIT);
@@ -112,9 +117,19 @@ public class SubversionRepository implements SCM {
 
     }
 
-    @SuppressWarnings("rawtypes")
     @Override
     public List<ChangeSet> getChangeSets() {
+        try (Stream<ChangeSet> changeSets = streamChangeSets(false)) {
+            return changeSets.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the log in pages of {@value #LOG_PAGE_SIZE} revisions, so only one page of change sets is in memory at
+     * a time.
+     */
+    @Override
+    public Stream<ChangeSet> streamChangeSets(boolean reverse) {
         SVNRepository repository = null;
 
         try {
@@ -123,25 +138,51 @@ public class SubversionRepository implements SCM {
 
             authenticateIfNecessary(repository);
 
-            List<ChangeSet> allCs = new ArrayList<ChangeSet>();
+            final SVNRepository theRepository = repository;
+            final long latestRevision = repository.getLatestRevision();
+            Iterator<ChangeSet> changeSets = new Iterator<ChangeSet>() {
+                private final Deque<ChangeSet> page = new ArrayDeque<>();
+                private long nextPageStart = reverse ? latestRevision : 0;
+
+                @Override
+                public boolean hasNext() {
+                    while (page.isEmpty() && hasMorePages()) {
+                        readNextPage();
+                    }
+                    return !page.isEmpty();
+                }
 
-            long startRevision = 0;
-            long endRevision = -1; // HEAD (the latest) revision
-            Collection log = repository.log(new String[]{""}, null, startRevision, endRevision,
-                    true, true);
-            for (Iterator iterator = log.iterator(); iterator.hasNext(); ) {
-                SVNLogEntry entry = (SVNLogEntry) iterator.next();
-                allCs.add(new ChangeSet(String.valueOf(entry.getRevision()),
-                        convertToCalendar(entry.getDate())));
-            }
+                @Override
+                public ChangeSet next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return page.removeFirst();
+                }
 
-            return allCs;
+                private boolean hasMorePages() {
+                    return reverse ? nextPageStart >= 0 : nextPageStart <= latestRevision;
+                }
 
+                private void readNextPage() {
+                    long pageEnd = reverse ? Math.max(0, nextPageStart - LOG_PAGE_SIZE + 1)
+                            : Math.min(latestRevision, nextPageStart + LOG_PAGE_SIZE - 1);
+                    try {
+                        theRepository.log(new String[]{""}, nextPageStart, pageEnd, false, true,
+                                entry -> page.addLast(new ChangeSet(String.valueOf(entry.getRevision()),
+                                        convertToCalendar(entry.getDate()))));
+                    } catch (SVNException e) {
+                        throw new RuntimeException("error in getChangeSets() for " + path, e);
+                    }
+                    nextPageStart = reverse ? pageEnd - 1 : pageEnd + 1;
+                }
+            };
+
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(changeSets,
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false)
+                    .onClose(theRepository::closeSession);
         } catch (SVNException e) {
-            throw new RuntimeException("error in getHead() for " + path, e);
-        } finally {
             if (repository != null)
                 repository.closeSession();
+            throw new RuntimeException("error in getChangeSets() for " + path, e);
         }
     }
 
@@ -189,15 +230,16 @@ public class SubversionRepository implements SCM {
                 logEntry);
 
         if (modifications.size() > this.maxNumberFilesInACommit) {
-            log.warn("commit " + id + " has more than files than the limit");
-            throw new RuntimeException("commit " + id + " too big, sorry");
+            log.warn("commit " + id + " has " + modifications.size() + " files, only the first " +
+                    maxNumberFilesInACommit + " are kept");
+            modifications = new ArrayList<>(modifications.subList(0, maxNumberFilesInACommit));
         }
 
         commit.addModifications(modifications);
     }
 
     private Commit createCommit(SVNLogEntry logEntry) {
-        Developer committer = new Developer(logEntry.getAuthor(), null);
+        Developer committer = developers.get(logEntry.getAuthor(), null);
         Calendar date = convertToCalendar(logEntry.getDate());
         Commit commit = new Commit(String.valueOf(logEntry.getRevision()), null, committer, date, date, logEntry.getMessage(),
                 Collections.emptyList());
@@ -325,7 +367,9 @@ public class SubversionRepository implements SCM {
 
     @Override
     public long totalCommits() {
-        return getChangeSets().size();
+        try (Stream<ChangeSet> changeSets = streamChangeSets(false)) {
+            return changeSets.count();
+        }
     }
 
     @Override
@@ -461,4 +505,9 @@ public class SubversionRepository implements SCM {
     public void omitModifications() {
         this.includeModifications = false;
     }
+
+    @Override
+    public DeveloperPool getDevelopers() {
+        return developers;
+    }
 }
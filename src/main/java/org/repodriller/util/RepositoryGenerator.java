@@ -0,0 +1,421 @@
+package org.repodriller.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+/**
+ * Generates Git repositories of any size for tests and benchmarks.  The history is written object by object with
+ * JGit, without a working tree, and is always the same for the same settings: two runs produce the same commit
+ * hashes.
+ * <p>
+ * The first commit adds all files; every other commit edits a few lines of some of them, renames some, and replaces
+ * the binary ones.  Every few commits, a topic branch is created and gets some commits while <code>master</code>
+ * gets as many, and is then merged back into <code>master</code> (the topic branches are kept).  The two branches
+ * change different files, so the merges have no conflicts.
+ *
+ * <pre>
+ * String path = new RepositoryGenerator().withCommits(100000).withFiles(5000).withBranches(50, 3).generate(dir);
+ * new RepositoryMining().in(GitRepository.singleProject(path))...
+ * </pre>
+ */
+public class RepositoryGenerator {
+
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final long FIRST_COMMIT = 1262304000000L; // 2010-01-01
+    private static final long HOUR = 3600 * 1000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private long seed = 42;
+    private int commits = 100;
+    private int files = 100;
+    private int filesPerCommit = 3;
+    private int minLines = 20;
+    private int maxLines = 200;
+    private int developers = 10;
+    private int branchEvery = 0;
+    private int branchLength = 0;
+    private double renameRate = 0;
+    private double binaryRate = 0;
+    private boolean checkout = true;
+    private boolean pack = false;
+
+    public RepositoryGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param commits The number of commits, including the first one and the merge commits
+     */
+    public RepositoryGenerator withCommits(int commits) {
+        if (commits < 1) throw new IllegalArgumentException("commits must be positive");
+        this.commits = commits;
+        return this;
+    }
+
+    public RepositoryGenerator withFiles(int files) {
+        if (files < 1) throw new IllegalArgumentException("files must be positive");
+        this.files = files;
+        return this;
+    }
+
+    public RepositoryGenerator withFilesPerCommit(int filesPerCommit) {
+        if (filesPerCommit < 1) throw new IllegalArgumentException("filesPerCommit must be positive");
+        this.filesPerCommit = filesPerCommit;
+        return this;
+    }
+
+    /**
+     * @param min The least number of lines of a text file (or kilobytes of a binary file) when it is created
+     * @param max The largest number of lines of a text file (or kilobytes of a binary file) when it is created
+     */
+    public RepositoryGenerator withFileSizes(int min, int max) {
+        if (min < 1 || max < min) throw new IllegalArgumentException("sizes must be positive and min <= max");
+        this.minLines = min;
+        this.maxLines = max;
+        return this;
+    }
+
+    public RepositoryGenerator withDevelopers(int developers) {
+        if (developers < 1) throw new IllegalArgumentException("developers must be positive");
+        this.developers = developers;
+        return this;
+    }
+
+    /**
+     * @param every  Starts a topic branch after every <code>every</code> commits on <code>master</code>
+     * @param length The number of commits on each topic branch before it is merged back; <code>master</code> gets
+     *               as many commits in between
+     */
+    public RepositoryGenerator withBranches(int every, int length) {
+        if (every < 1 || length < 1) throw new IllegalArgumentException("every and length must be positive");
+        this.branchEvery = every;
+        this.branchLength = length;
+        return this;
+    }
+
+    /**
+     * @param rate The probability that a changed file is also renamed
+     */
+    public RepositoryGenerator withRenameRate(double rate) {
+        if (rate < 0 || rate > 1) throw new IllegalArgumentException("rate must be between 0 and 1");
+        this.renameRate = rate;
+        return this;
+    }
+
+    /**
+     * @param rate The fraction of files that are binary
+     */
+    public RepositoryGenerator withBinaryRate(double rate) {
+        if (rate < 0 || rate > 1) throw new IllegalArgumentException("rate must be between 0 and 1");
+        this.binaryRate = rate;
+        return this;
+    }
+
+    /**
+     * Leaves the working tree empty, which saves time and disk on huge repositories.  Mining does not need it, but
+     * checkouts and {@link org.repodriller.scm.SCM#files()} do.
+     */
+    public RepositoryGenerator withoutCheckout() {
+        this.checkout = false;
+        return this;
+    }
+
+    /**
+     * Packs the objects at the end, as <code>git gc</code> would, instead of leaving one loose file per object.
+     */
+    public RepositoryGenerator packed() {
+        this.pack = true;
+        return this;
+    }
+
+    /**
+     * @param dir An empty or missing directory
+     * @return The path of the generated repository
+     */
+    public String generate(File dir) {
+        if (dir.exists() && !dir.isDirectory()) throw new IllegalArgumentException(dir + " is not a directory");
+        if (dir.exists() && dir.list().length > 0) throw new IllegalArgumentException(dir + " is not empty");
+
+        Repository repo = null;
+        try {
+            repo = FileRepositoryBuilder.create(new File(dir, Constants.DOT_GIT));
+            repo.create();
+            new Writer(repo).write();
+
+            if (checkout || pack) {
+                Git git = new Git(repo);
+                if (checkout) git.reset().setMode(ResetType.HARD).call();
+                if (pack) git.gc().call();
+            }
+            return dir.getAbsolutePath();
+        } catch (IOException | GitAPIException e) {
+            throw new RuntimeException("error generating repository in " + dir, e);
+        } finally {
+            if (repo != null) repo.close();
+        }
+    }
+
+    private static class Directory {
+        final TreeMap<String, GeneratedFile> files = new TreeMap<>();
+        ObjectId tree;
+
+        Directory copy() {
+            Directory copy = new Directory();
+            copy.files.putAll(files);
+            copy.tree = tree;
+            return copy;
+        }
+    }
+
+    /**
+     * A file at some commit.  Changes create a new one, so branches can share the files they did not change.
+     */
+    private static class GeneratedFile {
+        List<String> lines;
+        byte[] bytes;
+        ObjectId blob;
+
+        boolean isBinary() {
+            return bytes != null;
+        }
+    }
+
+    /**
+     * The files at the last commit of a branch, and the trees of the directories that did not change since the
+     * previous one.  Files keep their index in <code>paths</code> when they are renamed.
+     */
+    private static class Branch {
+        final Map<String, Directory> directories = new TreeMap<>();
+        final List<String> paths = new ArrayList<>();
+        ObjectId head;
+
+        Branch copy() {
+            Branch copy = new Branch();
+            for (Map.Entry<String, Directory> entry : directories.entrySet())
+                copy.directories.put(entry.getKey(), entry.getValue().copy());
+            copy.paths.addAll(paths);
+            copy.head = head;
+            return copy;
+        }
+
+        GeneratedFile get(String path) {
+            int slash = path.indexOf('/');
+            return directories.get(path.substring(0, slash)).files.get(path.substring(slash + 1));
+        }
+
+        void put(String path, GeneratedFile file) {
+            int slash = path.indexOf('/');
+            Directory dir = directories.computeIfAbsent(path.substring(0, slash), d -> new Directory());
+            dir.files.put(path.substring(slash + 1), file);
+            dir.tree = null;
+        }
+
+        GeneratedFile remove(String path) {
+            int slash = path.indexOf('/');
+            Directory dir = directories.get(path.substring(0, slash));
+            dir.tree = null;
+            return dir.files.remove(path.substring(slash + 1));
+        }
+    }
+
+    /**
+     * The state of a single run.
+     */
+    private class Writer {
+        private final Repository repo;
+        private final ObjectInserter inserter;
+        private final Random random = new Random(seed);
+        private final Branch master = new Branch();
+        private int written;
+        private int names;
+
+        Writer(Repository repo) {
+            this.repo = repo;
+            this.inserter = repo.newObjectInserter();
+        }
+
+        void write() throws IOException {
+            try {
+                for (int i = 0; i < files; i++) {
+                    String path = newPath(random.nextDouble() < binaryRate);
+                    master.paths.add(path);
+                    GeneratedFile file = new GeneratedFile();
+                    if (path.endsWith(".bin")) file.bytes = randomBytes();
+                    else file.lines = randomLines(minLines + random.nextInt(maxLines - minLines + 1));
+                    master.put(path, file);
+                }
+                master.head = commit(master, "initial commit");
+
+                int onMaster = 1;
+                int topics = 0;
+                while (written < commits) {
+                    // a topic needs files of its own, so master can move on with the others meanwhile
+                    if (branchEvery > 0 && onMaster % branchEvery == 0 && written + 2 * branchLength + 1 <= commits
+                            && files > 1) {
+                        Branch topic = master.copy();
+                        String branch = "topic-" + (++topics);
+                        Set<Integer> changedInTopic = new TreeSet<>();
+                        for (int i = 1; i <= branchLength; i++) {
+                            changedInTopic.addAll(change(topic, 0));
+                            topic.head = commit(topic, branch + " change " + i, topic.head);
+                            change(master, 1);
+                            master.head = commit(master, "change " + written, master.head);
+                        }
+                        updateRef(Constants.R_HEADS + branch, topic.head);
+
+                        for (int index : changedInTopic) {
+                            master.remove(master.paths.get(index));
+                            String path = topic.paths.get(index);
+                            master.paths.set(index, path);
+                            master.put(path, topic.get(path));
+                        }
+                        master.head = commit(master, "Merge branch '" + branch + "'", master.head, topic.head);
+                    } else {
+                        change(master, -1);
+                        master.head = commit(master, "change " + written, master.head);
+                    }
+                    onMaster++;
+                }
+                inserter.flush();
+            } finally {
+                inserter.release();
+            }
+            updateRef(Constants.R_HEADS + Constants.MASTER, master.head);
+        }
+
+        /**
+         * @param parity Changes only files with even (0) or odd (1) indexes, or any file (-1)
+         * @return The indexes of the changed files
+         */
+        private List<Integer> change(Branch branch, int parity) {
+            List<Integer> changed = new ArrayList<>(filesPerCommit);
+            int size = branch.paths.size();
+            for (int i = 0; i < filesPerCommit; i++) {
+                int index = parity < 0 ? random.nextInt(size) : parity + 2 * random.nextInt((size - parity + 1) / 2);
+                String path = branch.paths.get(index);
+                GeneratedFile file = branch.remove(path);
+                boolean rename = random.nextDouble() < renameRate;
+
+                // renamed binary files keep their content, otherwise Git could not tell they were renamed
+                GeneratedFile changedFile = new GeneratedFile();
+                if (file.isBinary()) {
+                    changedFile.bytes = rename ? file.bytes : randomBytes();
+                } else {
+                    changedFile.lines = new ArrayList<>(file.lines);
+                    edit(changedFile.lines);
+                }
+
+                if (rename) {
+                    path = newPath(changedFile.isBinary());
+                    branch.paths.set(index, path);
+                }
+                branch.put(path, changedFile);
+                changed.add(index);
+            }
+            return changed;
+        }
+
+        private void edit(List<String> lines) {
+            int at = random.nextInt(lines.size() + 1);
+            int removed = Math.min(random.nextInt(4), lines.size() - at);
+            int added = random.nextInt(4);
+            if (removed == 0 && added == 0) added = 1;
+
+            lines.subList(at, at + removed).clear();
+            lines.addAll(at, randomLines(added));
+        }
+
+        private String newPath(boolean binary) {
+            int n = names++;
+            String dir = String.format("dir%04d", random.nextInt(Math.max(1, files / FILES_PER_DIRECTORY)));
+            return dir + "/" + (binary ? "Image" + n + ".bin" : "File" + n + ".java");
+        }
+
+        private ObjectId commit(Branch branch, String message, ObjectId... parents) throws IOException {
+            TreeFormatter root = new TreeFormatter();
+            for (Map.Entry<String, Directory> entry : branch.directories.entrySet()) {
+                Directory dir = entry.getValue();
+                if (dir.files.isEmpty()) continue;
+                if (dir.tree == null) dir.tree = insertTree(dir);
+                root.append(entry.getKey(), FileMode.TREE, dir.tree);
+            }
+
+            int developer = random.nextInt(developers);
+            PersonIdent author = new PersonIdent("Developer " + developer, "dev" + developer + "@repodriller.org",
+                    new Date(FIRST_COMMIT + written * HOUR), UTC);
+
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(inserter.insert(root));
+            commit.setParentIds(Arrays.stream(parents).filter(p -> p != null).toArray(ObjectId[]::new));
+            commit.setAuthor(author);
+            commit.setCommitter(author);
+            commit.setMessage(message);
+            written++;
+            return inserter.insert(commit);
+        }
+
+        private ObjectId insertTree(Directory dir) throws IOException {
+            TreeFormatter tree = new TreeFormatter();
+            for (Map.Entry<String, GeneratedFile> entry : dir.files.entrySet()) {
+                GeneratedFile file = entry.getValue();
+                if (file.blob == null) {
+                    byte[] content = file.isBinary() ? file.bytes
+                            : (String.join("\n", file.lines) + "\n").getBytes(StandardCharsets.UTF_8);
+                    file.blob = inserter.insert(Constants.OBJ_BLOB, content);
+                }
+                tree.append(entry.getKey(), FileMode.REGULAR_FILE, file.blob);
+            }
+            return inserter.insert(tree);
+        }
+
+        private List<String> randomLines(int count) {
+            List<String> lines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                lines.add("    int field" + random.nextInt(1000) + " = " + random.nextInt() + ";");
+            }
+            return lines;
+        }
+
+        private byte[] randomBytes() {
+            byte[] bytes = new byte[1024 * (minLines + random.nextInt(maxLines - minLines + 1))];
+            random.nextBytes(bytes);
+            bytes[0] = 0; // makes sure Git sees it as binary
+            return bytes;
+        }
+
+        private void updateRef(String name, ObjectId id) throws IOException {
+            RefUpdate update = repo.updateRef(name);
+            update.setNewObjectId(id);
+            update.setForceUpdate(true);
+            RefUpdate.Result result = update.update();
+            if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NO_CHANGE)
+                throw new IOException("could not update " + name + ": " + result);
+        }
+    }
+}
@@ -9,6 +9,13 @@ import org.repodriller.scm.GitRepository;
 import org.repodriller.scm.git.GitRepositoryTest;
 
 import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
 
 public class CommitTest {
 
@@ -44,4 +51,60 @@ public class CommitTest {
         Assert.assertEquals(c1.getParent(), "a4ece0762e797d2e2dcbd471115108dd6e05ff58");
         Assert.assertNotEquals(c1, c3);
     }
+
+    @Test
+    public void shouldShareDevelopersBetweenCommits() {
+        Commit other = git.getCommit(c1.getParent());
+        Assert.assertSame(c1.getAuthor(), other.getAuthor());
+        Assert.assertSame(c1.getAuthor(), c1.getCommitter());
+    }
+
+    @Test
+    public void shouldGiveBackWhatItWasCreatedWith() {
+        TimeZone zone = TimeZone.getTimeZone("GMT-03:00");
+        Calendar date = new GregorianCalendar(zone);
+        date.setTimeInMillis(1400000000000L);
+        Commit commit = new Commit("e7d13b0511f8a176284ce4f92ed8c6e8d09c77f2", new Developer("Mau", "mau@mau.com"),
+                new Developer("Mau", "mau@mau.com"), date, zone, date, zone, "msg",
+                Arrays.asList("a4ece0762e797d2e2dcbd471115108dd6e05ff58", "b8c2be250786975f1c6f47e96922096f1bb25e39"),
+                true, new HashSet<>(Arrays.asList("master", "b2")), true);
+
+        Assert.assertEquals("e7d13b0511f8a176284ce4f92ed8c6e8d09c77f2", commit.getHash());
+        Assert.assertEquals("a4ece0762e797d2e2dcbd471115108dd6e05ff58", commit.getParent());
+        Assert.assertEquals(Arrays.asList("a4ece0762e797d2e2dcbd471115108dd6e05ff58", "b8c2be250786975f1c6f47e96922096f1bb25e39"),
+                commit.getParents());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("master", "b2")), commit.getBranches());
+        Assert.assertEquals(date.getTimeInMillis(), commit.getDate().getTimeInMillis());
+        Assert.assertEquals(zone.getRawOffset(), commit.getDate().getTimeZone().getRawOffset());
+        Assert.assertEquals(zone.getRawOffset(), commit.getAuthorTimeZone().getRawOffset());
+        Assert.assertEquals(new Developer("Mau", "mau@mau.com"), commit.getAuthor());
+    }
+
+    @Test
+    public void shouldKeepHashesThatAreNotFromGit() {
+        Calendar date = Calendar.getInstance();
+        Commit commit = new Commit("123", null, new Developer("Mau", null), date, date, "msg", Collections.singletonList("122"));
+
+        Assert.assertEquals("123", commit.getHash());
+        Assert.assertEquals("122", commit.getParent());
+        Assert.assertTrue(commit.getBranches().isEmpty());
+        Assert.assertEquals(new Commit("123", null, null, date, date, "", Collections.emptyList()), commit);
+    }
+
+    @Test
+    public void shouldNotShareChangesToTimeZones() {
+        TimeZone zone = new SimpleTimeZone(3600000, "Test/Zone");
+        Calendar date = new GregorianCalendar(zone);
+        Commit first = new Commit("1", null, null, date, zone, date, zone, "", Collections.emptyList(), false, null, false);
+        zone.setRawOffset(7200000);
+        first.getAuthorTimeZone().setRawOffset(0);
+        first.getDate().getTimeZone().setRawOffset(0);
+
+        Commit second = new Commit("2", null, null, date, new SimpleTimeZone(3600000, "Test/Zone"), date, zone, "",
+                Collections.emptyList(), false, null, false);
+        Assert.assertEquals(3600000, first.getAuthorTimeZone().getRawOffset());
+        Assert.assertEquals(3600000, first.getCommitterTimeZone().getRawOffset());
+        Assert.assertEquals(3600000, second.getAuthorTimeZone().getRawOffset());
+        Assert.assertEquals(3600000, first.getDate().getTimeZone().getRawOffset());
+    }
 }
@@ -0,0 +1,61 @@
+package org.repodriller.domain;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeveloperPoolTest {
+
+	@Test
+	public void shouldNumberDevelopersInOrder() {
+		DeveloperPool pool = new DeveloperPool();
+		Developer mau = pool.get("Mau", "mau@mau.com");
+		Developer john = pool.get("John", "john@doe.com");
+
+		Assert.assertSame(mau, pool.get("Mau", "mau@mau.com"));
+		Assert.assertNotSame(mau, pool.get("Mau", "other@mau.com"));
+		Assert.assertEquals(0, mau.getId());
+		Assert.assertEquals(1, john.getId());
+		Assert.assertEquals(3, pool.size());
+		Assert.assertSame(john, pool.get(1));
+	}
+
+	@Test
+	public void shouldReadAllMailmapForms() throws IOException {
+		DeveloperPool pool = new DeveloperPool();
+		pool.readMailmap(new StringReader(
+				"# comment\n" +
+				"Proper Name <commit@email.com>\n" +
+				"<proper@email.com> <other@email.com>\n" +
+				"Both Proper <both@email.com> <both-commit@email.com> # comment\n" +
+				"Pair Proper <pair@email.com> Pair Commit <shared@email.com>\n"));
+
+		assertDeveloper("Proper Name", "commit@email.com", pool.get("whatever", "commit@email.com"));
+		assertDeveloper("Someone", "proper@email.com", pool.get("Someone", "Other@Email.com"));
+		assertDeveloper("Both Proper", "both@email.com", pool.get("x", "both-commit@email.com"));
+		assertDeveloper("Pair Proper", "pair@email.com", pool.get("pair commit", "shared@email.com"));
+		assertDeveloper("Another", "shared@email.com", pool.get("Another", "shared@email.com"));
+	}
+
+	@Test
+	public void aliasesShouldShareTheProperDeveloper() {
+		DeveloperPool pool = new DeveloperPool();
+		pool.addAlias("Mau", "mau@mau.com", null, "old@mau.com");
+
+		Developer mau = pool.get("Mau", "mau@mau.com");
+		Assert.assertSame(mau, pool.get("Mauricio", "old@mau.com"));
+		Assert.assertEquals(1, pool.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void unknownIdsShouldFail() {
+		new DeveloperPool().get(0);
+	}
+
+	private static void assertDeveloper(String name, String email, Developer developer) {
+		Assert.assertEquals(name, developer.getName());
+		Assert.assertEquals(email, developer.getEmail());
+	}
+}
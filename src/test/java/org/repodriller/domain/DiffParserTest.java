@@ -1,9 +1,11 @@
 package org.repodriller.domain;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.repodriller.RepoDrillerException;
 
 public class DiffParserTest {
 
@@ -326,4 +328,104 @@ public class DiffParserTest {
 		Assert.assertTrue(newLinesBlock3.contains(new DiffLine(326, "               String context = System.getProperty(\"git.diffcontext\");", DiffLineType.KEPT)));
 		
 	}
+
+	@Test
+	public void shouldReadHeadersWithoutCounts() {
+		StringBuilder diff = new StringBuilder()
+				.append("diff --git a/A b/A\n")
+				.append("index 708caeb..bdc3fea 100644\n")
+				.append("--- a/A\n")
+				.append("+++ b/A\n")
+				.append("@@ -3 +3 @@ class A\n")
+				.append("-a\n")
+				.append("+b\n")
+				.append("@@ -10,0 +11,1 @@\n")
+				.append("+c\n");
+
+		List<DiffBlock> blocks = new DiffParser(diff).getBlocks();
+		Assert.assertEquals(2, blocks.size());
+		Assert.assertEquals("@@ -3 +3 @@ class A\n-a\n+b\n", blocks.get(0).getDiffBlock());
+		Assert.assertEquals(new DiffLine(3, "a", DiffLineType.REMOVED), blocks.get(0).getLinesInOldFile().get(0));
+		Assert.assertEquals(new DiffLine(3, "b", DiffLineType.ADDED), blocks.get(0).getLinesInNewFile().get(0));
+		Assert.assertTrue(blocks.get(1).getLinesInOldFile().isEmpty());
+		Assert.assertEquals(new DiffLine(11, "c", DiffLineType.ADDED), blocks.get(1).getLineInNewFile(11).get());
+	}
+
+	@Test
+	public void diffsWithoutBlocksHaveNoBlocks() {
+		String diff =
+			"diff --git a/image.png b/image.png\n"+
+			"index 708caeb..bdc3fea 100644\n"+
+			"Binary files a/image.png and b/image.png differ\n";
+
+		Assert.assertTrue(new DiffParser(diff).getBlocks().isEmpty());
+	}
+
+	@Test
+	public void shouldLookUpLinesByNumber() {
+		String diff =
+			"diff --git a/A b/A\n"+
+			"index 708caeb..bdc3fea 100644\n"+
+			"--- a/A\n"+
+			"+++ b/A\n"+
+			"@@ -10,4 +10,4 @@\n"+
+			" a\n"+
+			"-b\n"+
+			"+bb\n"+
+			" c\n"+
+			" d\n";
+
+		DiffBlock block = new DiffParser(diff).getBlocks().get(0);
+		Assert.assertEquals(new DiffLine(11, "b", DiffLineType.REMOVED), block.getLineInOldFile(11).get());
+		Assert.assertEquals(new DiffLine(11, "bb", DiffLineType.ADDED), block.getLineInNewFile(11).get());
+		Assert.assertEquals(new DiffLine(13, "d", DiffLineType.KEPT), block.getLineInNewFile(13).get());
+		Assert.assertFalse(block.getLineInOldFile(9).isPresent());
+		Assert.assertFalse(block.getLineInNewFile(14).isPresent());
+
+		List<DiffLine> range = block.getLinesInNewFile(12, 20);
+		Assert.assertEquals(2, range.size());
+		Assert.assertEquals(new DiffLine(12, "c", DiffLineType.KEPT), range.get(0));
+		Assert.assertEquals(new DiffLine(13, "d", DiffLineType.KEPT), range.get(1));
+		Assert.assertTrue(block.getLinesInOldFile(1, 9).isEmpty());
+	}
+
+	@Test(expected = RepoDrillerException.class)
+	public void lookingUpLinesOfMalformedBlocksShouldFail() {
+		new DiffBlock("@@ -1,3 +1,3 @@\n a\n").getLineInOldFile(1);
+	}
+
+	@Test
+	public void shouldGroupChangedLinesIntoEdits() {
+		String diff =
+			"diff --git a/A b/A\n"+
+			"index 708caeb..bdc3fea 100644\n"+
+			"--- a/A\n"+
+			"+++ b/A\n"+
+			"@@ -10,5 +10,5 @@\n"+
+			" a\n"+
+			"-b\n"+
+			"+bb\n"+
+			"+bbb\n"+
+			" c\n"+
+			"-d\n"+
+			" e\n"+
+			"@@ -20,0 +21,1 @@\n"+
+			"+f\n";
+
+		List<DiffEdit> edits = new Modification("A", "A", ModificationType.MODIFY, diff, "").getEdits();
+		Assert.assertEquals(3, edits.size());
+
+		Assert.assertEquals(DiffEditType.REPLACE, edits.get(0).getType());
+		Assert.assertEquals(new DiffEdit(10, 11, 10, 12, null, null), edits.get(0));
+		Assert.assertEquals(Arrays.asList("b"), edits.get(0).getOldLines());
+		Assert.assertEquals(Arrays.asList("bb", "bbb"), edits.get(0).getNewLines());
+
+		Assert.assertEquals(DiffEditType.DELETE, edits.get(1).getType());
+		Assert.assertEquals(new DiffEdit(12, 13, 13, 13, null, null), edits.get(1));
+		Assert.assertEquals(Arrays.asList("d"), edits.get(1).getOldLines());
+
+		Assert.assertEquals(DiffEditType.INSERT, edits.get(2).getType());
+		Assert.assertEquals(new DiffEdit(20, 20, 20, 21, null, null), edits.get(2));
+		Assert.assertEquals(Arrays.asList("f"), edits.get(2).getNewLines());
+	}
 }
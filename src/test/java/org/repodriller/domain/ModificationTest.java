@@ -38,4 +38,34 @@ public class ModificationTest {
 		Assert.assertEquals("Class.java", m3.getFileName());
 		
 	}
+
+	@Test
+	public void shouldLoadDiffAndSourceCodeOnFirstAccessOnly() {
+		int[] loads = new int[2];
+		Modification m = new Modification("old", "new", ModificationType.MODIFY) {
+			@Override
+			protected String loadDiff() {
+				loads[0]++;
+				return "+ new line\n- removed line\n+ new line\n";
+			}
+
+			@Override
+			protected String loadSourceCode() {
+				loads[1]++;
+				return "class Java {} ";
+			}
+		};
+
+		Assert.assertEquals("new", m.getNewPath());
+		Assert.assertArrayEquals(new int[] { 0, 0 }, loads);
+
+		Assert.assertEquals(2, m.getAdded());
+		Assert.assertEquals(1, m.getRemoved());
+		Assert.assertTrue(m.getDiff().startsWith("+ new line"));
+		Assert.assertArrayEquals(new int[] { 1, 0 }, loads);
+
+		Assert.assertEquals("class Java {} ", m.getSourceCode());
+		Assert.assertEquals("class Java {} ", m.getSourceCode());
+		Assert.assertArrayEquals(new int[] { 1, 1 }, loads);
+	}
 }
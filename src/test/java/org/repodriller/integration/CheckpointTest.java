@@ -0,0 +1,192 @@
+package org.repodriller.integration;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.filter.range.AllCommits;
+import org.repodriller.filter.range.CommitRange;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.scm.GitRepository;
+import org.repodriller.scm.SCM;
+import org.repodriller.scm.SCMRepository;
+
+public class CheckpointTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private String path;
+	private String journal;
+	private List<String> all;
+
+	@Before
+	public void setUp() throws IOException {
+		this.path = this.getClass().getResource("/").getPath() + "../../test-repos/git-1";
+		this.journal = new File(tmp.getRoot(), "journal.tsv").getPath();
+		this.all = new GitRepository(path).getChangeSets().stream().map(ChangeSet::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void shouldResumeWhereTheLastRunStopped() {
+		TestVisitor first = new TestVisitor();
+		mining(first).through(Commits.list(all.subList(0, 5))).checkpointIn(journal).mine();
+		Assert.assertEquals(5, first.getVisitedHashes().size());
+
+		TestVisitor second = new TestVisitor();
+		mining(second).through(Commits.all()).checkpointIn(journal).resume().mine();
+		Assert.assertEquals(new HashSet<>(all.subList(5, all.size())), new HashSet<>(second.getVisitedHashes()));
+		Assert.assertEquals(all.size() - 5, second.getVisitedHashes().size());
+
+		TestVisitor third = new TestVisitor();
+		mining(third).through(Commits.all()).checkpointIn(journal).resume().mine();
+		Assert.assertTrue(third.getVisitedHashes().isEmpty());
+	}
+
+	@Test
+	public void shouldStartOverWithoutResume() {
+		mining(new TestVisitor()).through(Commits.all()).checkpointIn(journal).mine();
+
+		TestVisitor again = new TestVisitor();
+		mining(again).through(Commits.all()).checkpointIn(journal).mine();
+		Assert.assertEquals(all.size(), again.getVisitedHashes().size());
+	}
+
+	@Test
+	public void incrementalRunsShouldOnlyVisitNewVisitorsAndCommits() throws IOException {
+		mining(new TestVisitor()).through(Commits.all()).checkpointIn(journal).mine();
+
+		// a run that died while writing the journal
+		try (FileWriter out = new FileWriter(journal, true)) {
+			out.write("D\t" + path + "\tte");
+		}
+
+		TestVisitor unchanged = new TestVisitor();
+		mining(unchanged).through(Commits.all()).checkpointIn(journal).incremental().mine();
+		Assert.assertTrue(unchanged.getVisitedHashes().isEmpty());
+
+		TestVisitor old = new TestVisitor();
+		TestVisitor added = new TestVisitor() {
+			@Override
+			public String name() {
+				return "added";
+			}
+		};
+		mining(old).process(added).through(Commits.all()).checkpointIn(journal).incremental().mine();
+		Assert.assertTrue(old.getVisitedHashes().isEmpty());
+		Assert.assertEquals(new HashSet<>(all), new HashSet<>(added.getVisitedHashes()));
+	}
+
+	@Test
+	public void incrementalRunsShouldOnlyWalkTheCommitsSinceTheLastHead() throws Exception {
+		String copy = copyRepository();
+		SCMRepository before = GitRepository.singleProject(copy);
+		new RepositoryMining().in(before).process(new TestVisitor()).through(Commits.all()).checkpointIn(journal).mine();
+
+		Git git = Git.open(new File(copy));
+		try {
+			Files.write(new File(copy, "Novo.java").toPath(), "class Novo {}\n".getBytes("UTF-8"));
+			git.add().addFilepattern("Novo.java").call();
+			git.commit().setMessage("novo").call();
+		} finally {
+			git.close();
+		}
+
+		// the walk stops at the last head, but still passes the commits that only other branches reach
+		long since;
+		try (Stream<ChangeSet> changeSets = new GitRepository(copy).streamChangeSetsSince(before.getHeadCommit(), false)) {
+			since = changeSets.count();
+		}
+		Assert.assertTrue(since < all.size());
+
+		AtomicLong enumerated = new AtomicLong();
+		CommitRange counted = new AllCommits() {
+			@Override
+			public Stream<ChangeSet> stream(SCM scm, boolean reverse) {
+				return super.stream(scm, reverse).peek(cs -> enumerated.incrementAndGet());
+			}
+
+			@Override
+			public Stream<ChangeSet> streamSince(SCM scm, String commit, boolean reverse) {
+				return super.streamSince(scm, commit, reverse).peek(cs -> enumerated.incrementAndGet());
+			}
+		};
+		TestVisitor next = new TestVisitor();
+		new RepositoryMining().in(GitRepository.singleProject(copy)).process(next)
+				.through(counted).checkpointIn(journal).incremental().mine();
+		Assert.assertEquals(since, enumerated.get());
+		Assert.assertEquals(1, next.getVisitedHashes().size());
+		Assert.assertEquals("novo", next.getVisitedCommits().get(0).getMsg());
+	}
+
+	@Test
+	public void shouldNotJournalCommitsWhoseRowsWereNotFlushed() throws IOException {
+		PersistenceMechanism unflushable = new PersistenceMechanism() {
+			@Override
+			public void write(Object... line) {
+			}
+
+			@Override
+			public void flush() {
+				throw new RuntimeException("disk full");
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		try {
+			new RepositoryMining().in(GitRepository.singleProject(path)).process(new TestVisitor(), unflushable)
+					.through(Commits.all()).checkpointIn(journal).mine();
+			Assert.fail();
+		} catch (RuntimeException e) {
+			Assert.assertEquals("disk full", e.getMessage());
+		}
+		Assert.assertTrue(Files.readAllLines(new File(journal).toPath()).isEmpty());
+
+		TestVisitor again = new TestVisitor();
+		mining(again).through(Commits.all()).checkpointIn(journal).resume().mine();
+		Assert.assertEquals(all.size(), again.getVisitedHashes().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void resumeShouldNeedAJournal() {
+		mining(new TestVisitor()).through(Commits.all()).resume().mine();
+	}
+
+	private String copyRepository() throws IOException {
+		Path source = new File(path).toPath();
+		Path target = tmp.newFolder("git-1").toPath();
+		try (Stream<Path> files = Files.walk(source)) {
+			for (Path file : files.collect(Collectors.toList())) {
+				Path copy = target.resolve(source.relativize(file).toString());
+				if (Files.isDirectory(file)) copy.toFile().mkdirs();
+				else Files.copy(file, copy);
+			}
+		}
+		return target.toString();
+	}
+
+	private RepositoryMining mining(TestVisitor visitor) {
+		return new RepositoryMining()
+				.in(GitRepository.singleProject(path))
+				.process(visitor);
+	}
+}
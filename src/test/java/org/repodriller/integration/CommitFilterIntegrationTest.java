@@ -1,11 +1,14 @@
 package org.repodriller.integration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.repodriller.RepositoryMining;
+import org.repodriller.domain.Commit;
 import org.repodriller.filter.commit.OnlyInMainBranch;
 import org.repodriller.filter.commit.OnlyModificationsWithFileTypes;
 import org.repodriller.filter.commit.OnlyNoMerge;
@@ -74,6 +77,23 @@ public class CommitFilterIntegrationTest {
 		Assert.assertTrue(visitor.getVisitedHashes().get(3).equals("377e0f474d70f6205784d0150ee0069a050c29ed"));
 	}
 
+	@Test
+	public void shouldRunCheaperFiltersFirst() {
+		
+		List<Commit> seenByContentFilter = new ArrayList<>();
+		TestVisitor visitor = new TestVisitor();
+		
+		new RepositoryMining()
+		.in(GitRepository.singleProject(pathToRepo5))
+		.through(Commits.all())
+		.filters(commit -> seenByContentFilter.add(commit), new OnlyNoMerge())
+		.process(visitor)
+		.mine();
+		
+		Assert.assertEquals(visitor.getVisitedHashes().size(), seenByContentFilter.size());
+		Assert.assertTrue(seenByContentFilter.stream().noneMatch(Commit::isMerge));
+	}
+
 	@Test
 	public void shouldVisitAllIfNoFilter() {
 		
@@ -0,0 +1,127 @@
+package org.repodriller.integration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Modification;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.scm.GitRepository;
+import org.repodriller.scm.SCMRepository;
+
+public class MemoryBudgetTest {
+
+	private String path;
+	private Set<String> expected;
+
+	@Before
+	public void setUp() {
+		this.path = this.getClass().getResource("/").getPath() + "../../test-repos/git-1";
+		this.expected = new GitRepository(path).getChangeSets().stream()
+				.map(ChangeSet::getId)
+				.collect(Collectors.toSet());
+	}
+
+	@Test
+	public void shouldNotProcessMoreThanTheBudgetAtOnce() {
+		InFlightVisitor visitor = new InFlightVisitor();
+
+		new RepositoryMining()
+		.in(GitRepository.singleProject(path))
+		.through(Commits.all())
+		.withThreads(4)
+		.withBatchSize(1)
+		.withMemoryBudget(1)
+		.process(visitor)
+		.mine();
+
+		Assert.assertEquals(expected, new HashSet<>(visitor.getVisitedHashes()));
+		Assert.assertEquals(1, visitor.maxInFlight.get());
+	}
+
+	@Test
+	public void shouldProcessEverythingInAPipeline() {
+		TestVisitor visitor = new TestVisitor();
+
+		new RepositoryMining()
+		.in(GitRepository.singleProject(path))
+		.through(Commits.all())
+		.withPipeline(2, 2, 1)
+		.withMemoryBudget(10 * 1024)
+		.process(visitor)
+		.mine();
+
+		Assert.assertEquals(expected.size(), visitor.getVisitedHashes().size());
+		Assert.assertEquals(expected, new HashSet<>(visitor.getVisitedHashes()));
+	}
+
+	@Test(timeout = 10000)
+	public void shouldGiveTheBudgetBackWhenTheModificationsCannotBeRead() {
+		String broken = expected.iterator().next();
+		SCMRepository repo = new GitRepository(path) {
+			@Override
+			public Commit getCommit(String id) {
+				Commit commit = super.getCommit(id);
+				if (!id.equals(broken)) return commit;
+				return new Commit(id, commit.getAuthor(), commit.getCommitter(), commit.getDate(),
+						commit.getCommitterDate(), commit.getMsg(), new ArrayList<>(commit.getParents())) {
+					@Override
+					public List<Modification> getModifications() {
+						throw new IllegalStateException("unreadable");
+					}
+				};
+			}
+
+			@Override
+			public long estimateMemory(Commit commit) {
+				return 1;
+			}
+		}.info();
+		TestVisitor visitor = new TestVisitor();
+
+		new RepositoryMining()
+		.in(repo)
+		.through(Commits.all())
+		.withPipeline(1, 1)
+		.withMemoryBudget(1)
+		.process(visitor)
+		.mine();
+
+		Set<String> visitable = new HashSet<>(expected);
+		visitable.remove(broken);
+		Assert.assertEquals(visitable, new HashSet<>(visitor.getVisitedHashes()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectEmptyBudgets() {
+		new RepositoryMining().withMemoryBudget(0);
+	}
+
+	private static class InFlightVisitor extends TestVisitor {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+
+		@Override
+		public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.process(repo, commit, writer);
+			inFlight.decrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package org.repodriller.integration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.Commit;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.persistence.AsyncPersistence;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.persistence.csv.CSVFile;
+import org.repodriller.scm.CommitVisitor;
+import org.repodriller.scm.GitRepository;
+import org.repodriller.scm.SCMRepository;
+
+public class PipelineTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private String path;
+	private Set<String> expected;
+
+	@Before
+	public void setUp() {
+		this.path = this.getClass().getResource("/").getPath() + "../../test-repos/git-1";
+		this.expected = new GitRepository(path).getChangeSets().stream()
+				.map(ChangeSet::getId)
+				.collect(Collectors.toSet());
+	}
+
+	@Test
+	public void shouldVisitEveryCommitExactlyOnce() {
+		for (int capacity : new int[] { 1, 4, 100 }) {
+			TestVisitor visitor = new TestVisitor();
+
+			RepositoryMining mining = new RepositoryMining()
+					.in(GitRepository.singleProject(path))
+					.through(Commits.all())
+					.withPipeline(2, 3, capacity)
+					.process(visitor);
+			mining.mine();
+
+			List<String> visited = visitor.getVisitedHashes();
+			Assert.assertEquals(expected.size(), visited.size());
+			Assert.assertEquals(expected, new HashSet<>(visited));
+			Assert.assertTrue(mining.getQueueDepths().values().stream().allMatch(depth -> depth == 0));
+		}
+	}
+
+	@Test
+	public void shouldFilterBeforeVisiting() {
+		TestVisitor visitor = new TestVisitor();
+
+		new RepositoryMining()
+				.in(GitRepository.singleProject(path))
+				.through(Commits.all())
+				.filters(commit -> commit.getModifications().size() == 1)
+				.withPipeline(2, 2)
+				.process(visitor)
+				.mine();
+
+		Assert.assertFalse(visitor.getVisitedCommits().isEmpty());
+		Assert.assertTrue(visitor.getVisitedCommits().size() < expected.size());
+		for (Commit commit : visitor.getVisitedCommits()) {
+			Assert.assertEquals(1, commit.getModifications().size());
+		}
+	}
+
+	@Test
+	public void shouldWriteAllRowsBeforeFinishing() throws IOException {
+		File csv = new File(tmp.getRoot(), "hashes.csv");
+		CommitVisitor hashes = new CommitVisitor() {
+			@Override
+			public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+				writer.write(commit.getHash());
+			}
+
+			@Override
+			public String name() {
+				return "hashes";
+			}
+		};
+
+		new RepositoryMining()
+				.in(GitRepository.singleProject(path))
+				.through(Commits.all())
+				.withPipeline(1, 4, 2)
+				.writeAsynchronously()
+				.process(hashes, new CSVFile(csv.getPath()))
+				.mine();
+
+		List<String> rows = Files.readAllLines(csv.toPath());
+		Assert.assertEquals(expected.size(), rows.size());
+		Assert.assertEquals(expected, new HashSet<>(rows));
+	}
+
+	@Test
+	public void shouldOnlyWriteAsynchronouslyWhenAsked() {
+		Set<PersistenceMechanism> writers = ConcurrentHashMap.newKeySet();
+		CommitVisitor recorder = new CommitVisitor() {
+			@Override
+			public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+				writers.add(writer);
+			}
+
+			@Override
+			public String name() {
+				return "recorder";
+			}
+		};
+
+		new RepositoryMining()
+				.in(GitRepository.singleProject(path))
+				.through(Commits.all())
+				.withPipeline(2, 2)
+				.process(recorder, new CSVFile(new File(tmp.getRoot(), "rows.csv").getPath()))
+				.mine();
+		Assert.assertEquals(1, writers.size());
+		Assert.assertTrue(writers.iterator().next() instanceof CSVFile);
+
+		writers.clear();
+		new RepositoryMining()
+				.in(GitRepository.singleProject(path))
+				.through(Commits.all())
+				.withPipeline(2, 2)
+				.writeAsynchronously()
+				.process(recorder, new CSVFile(new File(tmp.getRoot(), "rows.csv").getPath()))
+				.mine();
+		Assert.assertEquals(1, writers.size());
+		Assert.assertTrue(writers.iterator().next() instanceof AsyncPersistence);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectEmptyStages() {
+		new RepositoryMining().withPipeline(1, 0);
+	}
+}
@@ -0,0 +1,136 @@
+package org.repodriller.integration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.Commit;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.scm.CommitVisitor;
+import org.repodriller.scm.GitRepository;
+import org.repodriller.scm.SCMRepository;
+
+public class RepositoryThreadsTest {
+
+	private List<String> paths;
+
+	@Before
+	public void setUp() {
+		String root = this.getClass().getResource("/").getPath() + "../../test-repos/";
+		this.paths = new ArrayList<>();
+		for (String repo : new String[] { "git-1", "git-2", "git-4", "git-5" }) {
+			paths.add(root + repo);
+		}
+	}
+
+	@Test
+	public void shouldVisitEveryCommitOfEveryRepository() {
+		for (int threads : new int[] { 1, 3 }) {
+			EventVisitor visitor = new EventVisitor();
+
+			new RepositoryMining()
+			.in(paths.stream().map(GitRepository::singleProject).toArray(SCMRepository[]::new))
+			.through(Commits.all())
+			.withRepositoryThreads(3)
+			.withThreads(threads)
+			.withBatchSize(1)
+			.process(visitor)
+			.mine();
+
+			Assert.assertEquals(paths.size(), visitor.events.size());
+			for (String path : paths) {
+				List<String> events = visitor.events.get(path);
+				Set<String> expected = new GitRepository(path).getChangeSets().stream()
+						.map(ChangeSet::getId)
+						.collect(Collectors.toSet());
+
+				Assert.assertEquals("initialize", events.get(0));
+				Assert.assertEquals("finalize", events.get(events.size() - 1));
+				List<String> visited = events.subList(1, events.size() - 1);
+				Assert.assertEquals(expected.size(), visited.size());
+				Assert.assertEquals(expected, new HashSet<>(visited));
+			}
+		}
+	}
+
+	@Test
+	public void shouldReleaseEachRepositoryOnceItIsMined() {
+		Map<String, AtomicInteger> releases = new ConcurrentHashMap<>();
+		SCMRepository[] repos = paths.stream().map(path -> new GitRepository(path) {
+			@Override
+			public void release() {
+				releases.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+				super.release();
+			}
+		}.info()).toArray(SCMRepository[]::new);
+
+		new RepositoryMining()
+		.in(repos)
+		.through(Commits.all())
+		.withRepositoryThreads(2)
+		.withThreads(2)
+		.process(new EventVisitor())
+		.mine();
+
+		for (SCMRepository repo : repos) {
+			Assert.assertEquals(1, releases.get(repo.getPath()).get());
+			// released resources are opened again when needed
+			Assert.assertEquals(repo.getHeadCommit(), repo.getScm().getCommit(repo.getHeadCommit()).getHash());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldNotCombineWithPipeline() {
+		new RepositoryMining()
+		.in(GitRepository.singleProject(paths.get(0)))
+		.through(Commits.all())
+		.withRepositoryThreads(2)
+		.withPipeline(1, 1)
+		.process(new EventVisitor())
+		.mine();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNoRepositoryThreads() {
+		new RepositoryMining().withRepositoryThreads(0);
+	}
+
+	private static class EventVisitor implements CommitVisitor {
+
+		private final Map<String, List<String>> events = Collections.synchronizedMap(new HashMap<>());
+
+		@Override
+		public void initialize(SCMRepository repo, PersistenceMechanism writer) {
+			events.put(repo.getPath(), Collections.synchronizedList(new ArrayList<>()));
+			events.get(repo.getPath()).add("initialize");
+		}
+
+		@Override
+		public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+			events.get(repo.getPath()).add(commit.getHash());
+		}
+
+		@Override
+		public void finalize(SCMRepository repo, PersistenceMechanism writer) {
+			events.get(repo.getPath()).add("finalize");
+		}
+
+		@Override
+		public String name() {
+			return "events";
+		}
+	}
+}
@@ -22,7 +22,7 @@ public class TestVisitor implements CommitVisitor {
 	}
 	
 	@Override
-	public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+	public synchronized void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
 		visitedHashes.add(commit.getHash());
 		visitedTimes.add(commit.getDate());
 		visitedCommits.add(commit);
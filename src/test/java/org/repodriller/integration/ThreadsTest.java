@@ -0,0 +1,52 @@
+package org.repodriller.integration;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.scm.GitRepository;
+
+public class ThreadsTest {
+
+	private String path;
+
+	@Before
+	public void setUp() {
+		this.path = this.getClass().getResource("/").getPath() + "../../test-repos/git-1";
+	}
+
+	@Test
+	public void shouldVisitEveryCommitExactlyOnce() {
+		Set<String> expected = new GitRepository(path).getChangeSets().stream()
+				.map(ChangeSet::getId)
+				.collect(Collectors.toSet());
+
+		for (int batchSize : new int[] { 1, 3, 100 }) {
+			TestVisitor visitor = new TestVisitor();
+
+			new RepositoryMining()
+			.in(GitRepository.singleProject(path))
+			.through(Commits.all())
+			.withThreads(4)
+			.withBatchSize(batchSize)
+			.process(visitor)
+			.mine();
+
+			List<String> visited = visitor.getVisitedHashes();
+			Assert.assertEquals(expected.size(), visited.size());
+			Assert.assertEquals(expected, new HashSet<>(visited));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectEmptyBatches() {
+		new RepositoryMining().withBatchSize(0);
+	}
+}
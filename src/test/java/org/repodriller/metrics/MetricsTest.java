@@ -0,0 +1,178 @@
+package org.repodriller.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repodriller.RepositoryMining;
+import org.repodriller.domain.Commit;
+import org.repodriller.filter.commit.OnlyNoMerge;
+import org.repodriller.filter.range.Commits;
+import org.repodriller.persistence.PersistenceMechanism;
+import org.repodriller.scm.CommitVisitor;
+import org.repodriller.scm.GitRepository;
+import org.repodriller.scm.SCMRepository;
+
+public class MetricsTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void timersShouldApproximatePercentiles() {
+		Timer timer = new Timer();
+		for (int i = 1; i <= 100; i++) {
+			timer.record(i * 1000L);
+		}
+
+		Assert.assertEquals(100, timer.getCount());
+		Assert.assertEquals(5.05, timer.getTotalMillis(), 0.001);
+		Assert.assertEquals(50.5, timer.getMeanMicros(), 0.001);
+		Assert.assertEquals(100, timer.getMaxMicros(), 0.001);
+		// each percentile lies within its power-of-two bucket
+		Assert.assertTrue(timer.getP50Micros() >= 50 && timer.getP50Micros() < 100);
+		Assert.assertTrue(timer.getP99Micros() >= 99 && timer.getP99Micros() <= 100);
+		Assert.assertEquals(0, new Timer().getP95Micros(), 0);
+	}
+
+	@Test
+	public void shouldMeasureTheMiningEngine() {
+		long visited = Metrics.counter("commits.visited").getCount();
+		long filtered = Metrics.counter("commits.filtered").getCount();
+		long scans = Metrics.timer("git.scan").getCount();
+
+		new RepositoryMining()
+			.in(GitRepository.singleProject(this.getClass().getResource("/").getPath() + "../../test-repos/git-5"))
+			.through(Commits.all())
+			.filters(new OnlyNoMerge())
+			.process(new CommitVisitor() {
+				@Override
+				public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+					commit.getModifications();
+				}
+
+				@Override
+				public String name() {
+					return "modifications";
+				}
+			})
+			.mine();
+
+		long newVisits = Metrics.counter("commits.visited").getCount() - visited;
+		Assert.assertTrue(newVisits > 0);
+		Assert.assertTrue(Metrics.counter("commits.filtered").getCount() - filtered > 0);
+		Assert.assertEquals(newVisits, Metrics.timer("git.scan").getCount() - scans);
+		Assert.assertTrue(Metrics.getTimers().containsKey("filter.OnlyNoMerge"));
+		Assert.assertTrue(Metrics.timer("mining.enumerate").getCount() > 0);
+		Assert.assertEquals(newVisits, Metrics.timer("visitor.modifications").getCount());
+	}
+
+	@Test
+	public void shouldOnlyMeterWritesWhenAsked() {
+		RowWriter writer = new RowWriter();
+		WriterVisitor visitor = new WriterVisitor();
+		mine(new RepositoryMining().process(visitor, writer));
+
+		Assert.assertEquals(1, visitor.writers.size());
+		Assert.assertTrue(visitor.writers.contains(writer));
+	}
+
+	@Test
+	public void shouldTimeTheWritesOfTheUnwrappedWriter() {
+		long writes = Metrics.timer("persistence.RowWriter").getCount();
+
+		RowWriter writer = new RowWriter();
+		WriterVisitor visitor = new WriterVisitor();
+		mine(new RepositoryMining().process(visitor, writer).withPipeline(1, 1).writeAsynchronously().meterWrites());
+
+		Assert.assertFalse(visitor.writers.contains(writer));
+		Assert.assertTrue(writer.rows > 0);
+		Assert.assertEquals(writer.rows, Metrics.timer("persistence.RowWriter").getCount() - writes);
+	}
+
+	@Test
+	public void meteredWritersShouldStillBeFlushed() {
+		RowWriter writer = new RowWriter();
+		String journal = new File(tmp.getRoot(), "journal.tsv").getPath();
+		mine(new RepositoryMining().process(new WriterVisitor(), writer).meterWrites().checkpointIn(journal));
+
+		Assert.assertTrue(writer.flushes > 0);
+	}
+
+	@Test
+	public void shouldReportSnapshotsToAFile() throws IOException {
+		Metrics.counter("test.reported").add(42);
+		File file = new File(tmp.getRoot(), "metrics.tsv");
+
+		MetricsReporter reporter = new MetricsReporter(file.getPath(), 1, TimeUnit.HOURS);
+		reporter.report();
+		reporter.close();
+
+		List<String> lines = Files.readAllLines(file.toPath());
+		Assert.assertEquals(MetricsReporter.HEADER, lines.get(0));
+		Assert.assertEquals(2, lines.stream().filter(l -> l.contains("\ttest.reported\t42\t")).count());
+	}
+
+	@Test
+	public void shouldRegisterMBeans() throws Exception {
+		Metrics.timer("test.jmx").record(1000);
+		Metrics.registerMBeans();
+		Metrics.counter("test.jmx.later").increment();
+
+		ObjectName timer = new ObjectName("org.repodriller:type=Timer,name=" + ObjectName.quote("test.jmx"));
+		ObjectName counter = new ObjectName("org.repodriller:type=Counter,name=" + ObjectName.quote("test.jmx.later"));
+		Assert.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(timer, "Count"));
+		Assert.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(counter, "Count"));
+	}
+
+	private void mine(RepositoryMining mining) {
+		mining.in(GitRepository.singleProject(this.getClass().getResource("/").getPath() + "../../test-repos/git-5"))
+			.through(Commits.all())
+			.mine();
+	}
+
+	private static class RowWriter implements PersistenceMechanism {
+		private volatile int rows;
+		private volatile int flushes;
+
+		@Override
+		public void write(Object... line) {
+			rows++;
+		}
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static class WriterVisitor implements CommitVisitor {
+		private final Set<PersistenceMechanism> writers = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public void process(SCMRepository repo, Commit commit, PersistenceMechanism writer) {
+			writers.add(writer);
+			writer.write(commit.getHash());
+		}
+
+		@Override
+		public String name() {
+			return "writers";
+		}
+	}
+}
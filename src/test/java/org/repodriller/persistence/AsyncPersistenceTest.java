@@ -0,0 +1,185 @@
+package org.repodriller.persistence;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.repodriller.persistence.AsyncPersistence.BackpressurePolicy;
+import org.repodriller.persistence.csv.CSVFileFormatException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncPersistenceTest {
+
+    private static class InMemory implements PersistenceMechanism {
+        final List<String> rows = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch unblock = new CountDownLatch(1);
+        volatile boolean closed;
+
+        @Override
+        public void write(Object... line) {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (line.length != 2) throw new CSVFileFormatException("expected 2 columns");
+            rows.add(Arrays.toString(line));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void closeShouldDrainTheQueue() {
+        InMemory target = new InMemory();
+        AsyncPersistence async = new AsyncPersistence(target, 16, BackpressurePolicy.BLOCK);
+
+        for (int i = 0; i < 10; i++) async.write(i, "row");
+        Assert.assertTrue(target.rows.isEmpty());
+
+        target.unblock.countDown();
+        async.close();
+
+        Assert.assertTrue(target.closed);
+        Assert.assertEquals(10, target.rows.size());
+        Assert.assertEquals("[0, row]", target.rows.get(0));
+        Assert.assertEquals("[9, row]", target.rows.get(9));
+    }
+
+    @Test
+    public void shouldDropRowsWhenTheQueueIsFull() {
+        InMemory target = new InMemory();
+        AsyncPersistence async = new AsyncPersistence(target, 4, BackpressurePolicy.DROP);
+
+        for (int i = 0; i < 20; i++) async.write(i, "row");
+        // the writer may have taken one row off the queue before it blocked
+        Assert.assertTrue(async.getDroppedRows() >= 15);
+
+        target.unblock.countDown();
+        async.close();
+        Assert.assertEquals(20, target.rows.size() + async.getDroppedRows());
+    }
+
+    @Test
+    public void callerShouldRunWhenTheQueueIsFull() throws Exception {
+        InMemory target = new InMemory();
+        AsyncPersistence async = new AsyncPersistence(target, 1, BackpressurePolicy.CALLER_RUNS);
+
+        Thread caller = new Thread(() -> {
+            for (int i = 0; i < 5; i++) async.write(i, "row");
+        });
+        caller.start();
+        caller.join(100);
+        // the caller is now writing itself, and waits for the slow target just like the writer
+        Assert.assertTrue(caller.isAlive());
+
+        target.unblock.countDown();
+        caller.join();
+        async.close();
+        Assert.assertEquals(5, target.rows.size());
+    }
+
+    @Test(expected = CSVFileFormatException.class)
+    public void errorsShouldBeThrownOnClose() {
+        InMemory target = new InMemory();
+        target.unblock.countDown();
+        AsyncPersistence async = new AsyncPersistence(target);
+
+        async.write("just one column");
+        async.write(1, "row");
+        try {
+            async.close();
+        } finally {
+            Assert.assertEquals(1, target.rows.size());
+            Assert.assertTrue(target.closed);
+        }
+    }
+
+    @Test
+    public void flushShouldWaitForTheQueuedRows() {
+        List<String> flushedRows = new ArrayList<>();
+        InMemory target = new InMemory() {
+            @Override
+            public void flush() {
+                flushedRows.addAll(rows);
+            }
+        };
+        target.unblock.countDown();
+        AsyncPersistence async = new AsyncPersistence(target);
+
+        for (int i = 0; i < 100; i++) async.write(i, "row");
+        async.flush();
+        Assert.assertEquals(100, flushedRows.size());
+        async.close();
+    }
+
+    @Test(timeout = 10000)
+    public void deadWritersShouldFailWritesAndClose() {
+        PersistenceMechanism dying = new PersistenceMechanism() {
+            @Override
+            public void write(Object... line) {
+                throw new AssertionError("writer died");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AsyncPersistence async = new AsyncPersistence(dying, 2, BackpressurePolicy.BLOCK);
+
+        PersistenceMechanismException failure = null;
+        for (int i = 0; i < 1000 && failure == null; i++) {
+            try {
+                async.write(i, "row");
+            } catch (PersistenceMechanismException e) {
+                failure = e;
+            }
+        }
+        Assert.assertNotNull(failure);
+        Assert.assertEquals("writer died", failure.getCause().getMessage());
+
+        try {
+            async.close();
+            Assert.fail();
+        } catch (PersistenceMechanismException e) {
+            Assert.assertEquals("writer died", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void rowsWrittenWhileClosingShouldNotBeLost() throws Exception {
+        for (int run = 0; run < 50; run++) {
+            InMemory target = new InMemory();
+            target.unblock.countDown();
+            AsyncPersistence async = new AsyncPersistence(target, 16, BackpressurePolicy.BLOCK);
+
+            AtomicInteger accepted = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(new Thread(() -> {
+                    try {
+                        while (true) {
+                            async.write(1, "row");
+                            accepted.incrementAndGet();
+                        }
+                    } catch (PersistenceMechanismException e) {
+                        // closed
+                    }
+                }));
+            }
+            for (Thread t : threads) t.start();
+            Thread.sleep(1);
+            async.close();
+            for (Thread t : threads) t.join();
+
+            Assert.assertEquals(accepted.get(), target.rows.size());
+        }
+    }
+}
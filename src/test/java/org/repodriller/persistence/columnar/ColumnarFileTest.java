@@ -0,0 +1,156 @@
+package org.repodriller.persistence.columnar;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repodriller.persistence.PersistenceMechanismException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class ColumnarFileTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldReadWhatWasWritten() throws IOException {
+        String path = path();
+        ColumnarFile file = new ColumnarFile(path, new String[] { "hash", "author", "added", "ratio", "merge" }, 3);
+        file.write("a1", "Maurício", 10, 0.5, false);
+        file.write("b2", "John, \"Doe\"", -3L, 1, true);
+        file.write("c3", null, null, null, null);
+        file.write("d4", "Maurício", Long.MAX_VALUE, 2.25f, true);
+        file.write('e', new StringBuilder("Mary"), (short) 0, -1.0, false);
+        file.close();
+
+        try (ColumnarFileReader reader = new ColumnarFileReader(path)) {
+            Assert.assertEquals(Arrays.asList("hash", "author", "added", "ratio", "merge"), reader.getColumnNames());
+            Assert.assertEquals(5, reader.getRowCount());
+
+            List<Object[]> rows = readAll(reader.read());
+            Assert.assertEquals(5, rows.size());
+            Assert.assertArrayEquals(new Object[] { "a1", "Maurício", 10L, 0.5, false }, rows.get(0));
+            Assert.assertArrayEquals(new Object[] { "b2", "John, \"Doe\"", -3L, 1.0, true }, rows.get(1));
+            Assert.assertArrayEquals(new Object[] { "c3", null, null, null, null }, rows.get(2));
+            Assert.assertArrayEquals(new Object[] { "d4", "Maurício", Long.MAX_VALUE, 2.25, true }, rows.get(3));
+            Assert.assertArrayEquals(new Object[] { "e", "Mary", 0L, -1.0, false }, rows.get(4));
+        }
+    }
+
+    @Test
+    public void shouldOnlyReadProjectedColumns() throws IOException {
+        String path = path();
+        ColumnarFile file = new ColumnarFile(path, new String[] { "hash", "path", "added" }, 100);
+        for (int i = 0; i < 1000; i++) {
+            file.write("hash" + i, "src/File" + (i % 7) + ".java", i % 13);
+        }
+        file.close();
+
+        try (ColumnarFileReader reader = new ColumnarFileReader(path)) {
+            List<Object[]> rows = readAll(reader.read("added", "hash"));
+            Assert.assertEquals(1000, rows.size());
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertArrayEquals(new Object[] { (long) (i % 13), "hash" + i }, rows.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void repeatedStringsShouldBeSmall() throws IOException {
+        String path = path();
+        ColumnarFile file = new ColumnarFile(path, new String[] { "author" });
+        for (int i = 0; i < 100000; i++) file.write("Some Developer With A Long Name " + (i % 10));
+        file.close();
+
+        Assert.assertTrue(new File(path).length() < 100000);
+    }
+
+    @Test
+    public void shouldNumberColumnsWithoutHeader() throws IOException {
+        String path = path();
+        ColumnarFile file = new ColumnarFile(path);
+        file.write(1, "a");
+        file.close();
+
+        try (ColumnarFileReader reader = new ColumnarFileReader(path)) {
+            Assert.assertEquals(Arrays.asList("column1", "column2"), reader.getColumnNames());
+            Assert.assertArrayEquals(new Object[] { 1L, "a" }, reader.read().next());
+        }
+    }
+
+    @Test
+    public void emptyFilesShouldBeReadable() throws IOException {
+        String path = path();
+        new ColumnarFile(path, new String[] { "a" }).close();
+
+        try (ColumnarFileReader reader = new ColumnarFileReader(path)) {
+            Assert.assertEquals(0, reader.getRowCount());
+            Assert.assertFalse(reader.read().hasNext());
+        }
+    }
+
+    @Test
+    public void flushShouldWriteTheRowsCollectedSoFar() throws IOException {
+        String path = path();
+        ColumnarFile file = new ColumnarFile(path, new String[] { "row" }, 100);
+        for (int i = 0; i < 3; i++) file.write(i);
+        file.flush();
+        Assert.assertTrue(new File(path).length() > ColumnarFile.MAGIC.length);
+
+        for (int i = 3; i < 5; i++) file.write(i);
+        file.close();
+
+        try (ColumnarFileReader reader = new ColumnarFileReader(path)) {
+            List<Object[]> rows = readAll(reader.read());
+            Assert.assertEquals(5, rows.size());
+            Assert.assertArrayEquals(new Object[] { 4L }, rows.get(4));
+        }
+    }
+
+    @Test
+    public void truncatedChunksShouldFail() throws IOException {
+        String path = path();
+        ColumnarFile file = new ColumnarFile(path, new String[] { "hash" });
+        for (int i = 0; i < 1000; i++) file.write("hash" + i);
+        file.close();
+
+        // halves the compressed length of the first chunk, which follows the magic bytes and its data length
+        try (RandomAccessFile raw = new RandomAccessFile(path, "rw")) {
+            raw.seek(ColumnarFile.MAGIC.length + 4);
+            int compressed = raw.readInt();
+            raw.seek(ColumnarFile.MAGIC.length + 4);
+            raw.writeInt(compressed / 2);
+        }
+
+        try (ColumnarFileReader reader = new ColumnarFileReader(path)) {
+            reader.read().hasNext();
+            Assert.fail("the truncated chunk was read");
+        } catch (UncheckedIOException e) {
+            Assert.assertTrue(e.getCause().getMessage().startsWith("corrupt chunk at "));
+        }
+    }
+
+    @Test(expected = PersistenceMechanismException.class)
+    public void valuesDoNotMatchHeaders() throws IOException {
+        ColumnarFile file = new ColumnarFile(path(), new String[] { "column1", "column2" });
+        file.write("value1");
+    }
+
+    private String path() throws IOException {
+        return new File(tmp.getRoot(), "test.rdc").getPath();
+    }
+
+    private static List<Object[]> readAll(Iterator<Object[]> rows) {
+        List<Object[]> all = new ArrayList<>();
+        rows.forEachRemaining(all::add);
+        return all;
+    }
+}
@@ -0,0 +1,195 @@
+package org.repodriller.persistence.csv;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.repodriller.persistence.PersistenceMechanismException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class BufferedCSVFileTest {
+
+    private String tmpPath;
+    private String plainPath;
+
+    @Before
+    public void setUp() {
+        String tmpDir = System.getProperty("java.io.tmpdir");
+        this.tmpPath = tmpDir + (tmpDir.endsWith(File.separator) ? "" : File.separator) + "test-buffered.csv";
+        this.plainPath = tmpDir + (tmpDir.endsWith(File.separator) ? "" : File.separator) + "test-plain.csv";
+    }
+
+    @Test
+    public void shouldWriteLikeCSVFile() throws IOException {
+        Object[][] rows = {
+                { "1", "2", "3" },
+                { 1, null, true },
+                { 4.55, "mauricio", "'hey'" },
+                { 1L, "my name is \"repodriller\", man", "fim" },
+                { "multi\nline", new StringBuilder("a,b"), "\r" },
+                { "ação", 'c', (short) 7 },
+        };
+
+        CSVFile plain = new CSVFile(plainPath);
+        BufferedCSVFile buffered = new BufferedCSVFile(tmpPath);
+        for (Object[] row : rows) {
+            plain.write(row);
+            buffered.write(row);
+        }
+        plain.close();
+        buffered.close();
+
+        Assert.assertArrayEquals(Files.readAllBytes(Paths.get(plainPath)), Files.readAllBytes(Paths.get(tmpPath)));
+    }
+
+    @Test
+    public void shouldOnlyWriteFullBuffersBeforeClosing() throws IOException {
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, null, false, 16, 0);
+
+        file.write("1", "2");
+        Assert.assertEquals(0, Files.size(Paths.get(tmpPath)));
+
+        file.write("a rather long value");
+        Assert.assertEquals(2, readLines().size());
+
+        file.write("3", "4");
+        file.close();
+        Assert.assertEquals(Arrays.asList("1,2", "a rather long value", "3,4"), readLines());
+    }
+
+    @Test
+    public void shouldFlushPeriodically() throws Exception {
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, null, false, 1024, 10);
+        file.write("1", "2");
+
+        for (int i = 0; i < 500 && Files.size(Paths.get(tmpPath)) == 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(Arrays.asList("1,2"), readLines());
+        file.close();
+    }
+
+    @Test
+    public void shouldKeepRowsOfAllThreads() throws Exception {
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, new String[] { "thread", "row", "text" }, false, 256, 1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int row = 0; row < 2000; row++) file.write(thread, row, "some \"quoted\", text");
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        file.close();
+
+        List<String> lines = readLines();
+        Assert.assertEquals("thread,row,text", lines.get(0));
+        Set<String> rows = new HashSet<>(lines.subList(1, lines.size()));
+        Assert.assertEquals(4 * 2000, lines.size() - 1);
+        Assert.assertEquals(4 * 2000, rows.size());
+        Assert.assertTrue(rows.contains("3,1999,\"some \"\"quoted\"\", text\""));
+    }
+
+    @Test
+    public void closingShouldNotLoseRowsOfARunningFlush() throws Exception {
+        for (int run = 0; run < 100; run++) {
+            BufferedCSVFile file = new BufferedCSVFile(tmpPath, null, false, 1024 * 1024, 1);
+            for (int row = 0; row < 20000; row++) file.write(run, row, "some text to make the flush take a while");
+            file.close();
+
+            Assert.assertEquals(20000, readLines().size());
+        }
+    }
+
+    @Test
+    public void failedFlushesShouldBeThrownByTheNextWrite() throws Exception {
+        // writing to /dev/full always fails with "no space left on device"
+        Assume.assumeTrue(new File("/dev/full").exists());
+        BufferedCSVFile file = new BufferedCSVFile("/dev/full", null, false, 1024, 1);
+
+        PersistenceMechanismException failure = null;
+        for (int i = 0; i < 500 && failure == null; i++) {
+            try {
+                file.write("1", "2");
+                Thread.sleep(10);
+            } catch (PersistenceMechanismException e) {
+                failure = e;
+            }
+        }
+        Assert.assertNotNull(failure);
+        Assert.assertEquals("error writing the CSV file", failure.getMessage());
+
+        try {
+            file.close();
+            Assert.fail("the rows that could not be written were lost");
+        } catch (PersistenceMechanismException e) {
+            Assert.assertEquals("error writing the CSV file", e.getMessage());
+        }
+    }
+
+    @Test
+    public void flushShouldWriteTheBuffersOfAllThreads() throws Exception {
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, null, false, 1024, 0);
+        Thread other = new Thread(() -> file.write("other"));
+        other.start();
+        other.join();
+        file.write("main");
+
+        file.flush();
+        Assert.assertEquals(new HashSet<>(Arrays.asList("other", "main")), new HashSet<>(readLines()));
+        file.close();
+    }
+
+    @Test
+    public void threadsShouldWriteAgainAfterTheirIdleBufferWasDropped() throws IOException {
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, null, false, 1024, 0);
+        file.write("1");
+        file.flush();
+        // nothing written since the last flush, so the buffer of this thread is dropped
+        file.flush();
+        file.write("2");
+        file.close();
+
+        Assert.assertEquals(Arrays.asList("1", "2"), readLines());
+    }
+
+    @Test
+    public void valuesMatchHeaders() throws IOException {
+        String[] header = new String[]{"column1", "column2", "column3"};
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, header);
+
+        file.write("just", "another", 1);
+        file.close();
+
+        Assert.assertEquals(Arrays.asList("column1,column2,column3", "just,another,1"), readLines());
+    }
+
+    @Test(expected = CSVFileFormatException.class)
+    public void valuesDoNotMatchHeaders() throws IOException {
+        String[] header = new String[]{"column1", "column2"};
+        BufferedCSVFile file = new BufferedCSVFile(tmpPath, header);
+
+        try {
+            file.write("value1");
+        } finally {
+            file.close();
+        }
+    }
+
+    private List<String> readLines() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(tmpPath)), StandardCharsets.UTF_8);
+        return Arrays.asList(text.split(System.getProperty("line.separator")));
+    }
+}
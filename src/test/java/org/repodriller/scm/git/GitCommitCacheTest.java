@@ -0,0 +1,155 @@
+package org.repodriller.scm.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Modification;
+import org.repodriller.scm.GitRepository;
+
+public class GitCommitCacheTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private String path;
+
+	@Before
+	public void copyRepository() throws IOException {
+		Path source = new File(GitCommitCacheTest.class.getResource("/").getPath() + "../../test-repos/git-1").toPath();
+		Path target = tmp.newFolder("git-1").toPath();
+		try (Stream<Path> files = Files.walk(source)) {
+			for (Path file : files.collect(Collectors.toList())) {
+				Path copy = target.resolve(source.relativize(file).toString());
+				if (Files.isDirectory(file)) copy.toFile().mkdirs();
+				else Files.copy(file, copy);
+			}
+		}
+		path = target.toString();
+	}
+
+	@Test
+	public void cachedCommitsShouldMatchTheRepository() {
+		List<String> expected = describeAll(new GitRepository(path));
+
+		GitRepository firstRun = new GitRepository(path);
+		firstRun.cacheCommits();
+		Assert.assertEquals(expected, describeAll(firstRun));
+		Assert.assertEquals(14, cacheEntries().size());
+
+		GitRepository secondRun = new GitRepository(path);
+		secondRun.cacheCommits();
+		Assert.assertEquals(expected, describeAll(secondRun));
+	}
+
+	@Test
+	public void shouldEvictEntriesBeyondTheMaximumSize() {
+		GitRepository unbounded = new GitRepository(path);
+		unbounded.cacheCommits();
+		describeAll(unbounded);
+		long size = cacheEntries().stream().mapToLong(File::length).sum();
+
+		for (File entry : cacheEntries()) entry.delete();
+
+		GitRepository bounded = new GitRepository(path);
+		bounded.cacheCommits(size / 2);
+		List<String> expected = describeAll(new GitRepository(path));
+		Assert.assertEquals(expected, describeAll(bounded));
+
+		List<File> entries = cacheEntries();
+		Assert.assertFalse(entries.isEmpty());
+		Assert.assertTrue(entries.size() < 14);
+		Assert.assertTrue(entries.stream().mapToLong(File::length).sum() <= size / 2);
+	}
+
+	@Test
+	public void shouldNotReuseEntriesLimitedToFewerFiles() {
+		List<String> expected = describeAll(new GitRepository(path));
+
+		System.setProperty("git.maxfiles", "1");
+		try {
+			GitRepository limited = new GitRepository(path);
+			limited.cacheCommits();
+			describeAll(limited);
+		} finally {
+			System.clearProperty("git.maxfiles");
+		}
+
+		GitRepository unlimited = new GitRepository(path);
+		unlimited.cacheCommits();
+		Assert.assertEquals(expected, describeAll(unlimited));
+	}
+
+	@Test
+	public void shouldCountLinesFromTheCacheAlone() throws IOException {
+		GitRepository firstRun = new GitRepository(path);
+		firstRun.cacheCommits();
+		List<String> ids = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (ChangeSet cs : firstRun.getChangeSets()) {
+			ids.add(cs.getId());
+			expected.add(countLines(firstRun.getCommit(cs.getId())));
+		}
+
+		// without its objects, the repository can only answer from the cache
+		File objects = new File(path, ".git/objects");
+		Assert.assertTrue(objects.renameTo(new File(path, ".git/objects-gone")));
+		Assert.assertTrue(objects.mkdir());
+
+		GitRepository cacheOnly = new GitRepository(path);
+		cacheOnly.omitBranches();
+		cacheOnly.cacheCommits();
+		List<String> counted = new ArrayList<>();
+		for (String id : ids) counted.add(countLines(cacheOnly.getCommit(id)));
+		Assert.assertEquals(expected, counted);
+	}
+
+	private String countLines(Commit commit) {
+		StringBuilder counts = new StringBuilder(commit.getHash());
+		for (Modification m : commit.getModifications()) {
+			counts.append(' ').append(m.getNewPath()).append('+').append(m.getAdded()).append('-').append(m.getRemoved());
+		}
+		return counts.toString();
+	}
+
+	private List<String> describeAll(GitRepository repo) {
+		List<String> commits = new ArrayList<>();
+		for (ChangeSet cs : repo.getChangeSets()) {
+			Commit c = repo.getCommit(cs.getId());
+			StringBuilder description = new StringBuilder()
+					.append(c.getHash()).append(c.getAuthor()).append(c.getCommitter()).append(c.getMsg())
+					.append(c.getDate().getTimeInMillis()).append(c.getAuthorTimeZone().getRawOffset())
+					.append(c.getCommitterDate().getTimeInMillis()).append(c.getCommitterTimeZone().getRawOffset())
+					.append(c.getParents()).append(c.isMerge()).append(c.getBranches()).append(c.isInMainBranch());
+			for (Modification m : c.getModifications()) {
+				description.append(m).append(m.getAdded()).append(m.getRemoved())
+						.append(m.getDiff()).append(m.getSourceCode());
+			}
+			commits.add(description.toString());
+		}
+		return commits;
+	}
+
+	private List<File> cacheEntries() {
+		File dir = new File(path, ".git/repodriller/commits");
+		List<File> entries = new ArrayList<>();
+		File[] shards = dir.listFiles();
+		if (shards == null) return entries;
+		for (File shard : shards) {
+			for (File entry : shard.listFiles()) entries.add(entry);
+		}
+		return entries;
+	}
+}
@@ -16,15 +16,40 @@
 
 package org.repodriller.scm.git;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.repodriller.domain.ChangeSet;
 import org.repodriller.domain.Commit;
+import org.repodriller.domain.Developer;
+import org.repodriller.domain.DiffEdit;
+import org.repodriller.domain.Modification;
 import org.repodriller.domain.ModificationType;
 import org.repodriller.scm.BlamedLine;
 import org.repodriller.scm.GitRepository;
@@ -33,6 +58,9 @@ import org.repodriller.scm.SCMRepository;
 
 public class GitRepositoryTest {
 
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
 	private GitRepository git1;
 	private GitRepository git2;
 	private GitRepository git3;
@@ -40,6 +68,7 @@ public class GitRepositoryTest {
 	private static String path1;
 	private static String path2;
 	private static String path3;
+	private static String path5;
 	private static String path6;
 
 	@BeforeClass
@@ -47,6 +76,7 @@ public class GitRepositoryTest {
 		path1 = GitRepositoryTest.class.getResource("/").getPath() + "../../test-repos/git-1";
 		path2 = GitRepositoryTest.class.getResource("/").getPath() + "../../test-repos/git-2";
 		path3 = GitRepositoryTest.class.getResource("/").getPath() + "../../test-repos/git-3";
+		path5 = GitRepositoryTest.class.getResource("/").getPath() + "../../test-repos/git-5";
 		path6 = GitRepositoryTest.class.getResource("/").getPath() + "../../test-repos/git-6";
 	}
 	
@@ -141,6 +171,23 @@ public class GitRepositoryTest {
 		Assert.assertEquals("866e997a9e44cb4ddd9e00efe49361420aff2559", cs.get(13).getId());
 	}
 	
+	@Test
+	public void shouldStreamCommitsInBothDirections() {
+		List<ChangeSet> all = git1.getChangeSets();
+
+		try (Stream<ChangeSet> cs = git1.streamChangeSets(false)) {
+			Assert.assertEquals(all, cs.collect(Collectors.toList()));
+		}
+
+		List<ChangeSet> reversed = new ArrayList<>(all);
+		Collections.reverse(reversed);
+		try (Stream<ChangeSet> cs = git1.streamChangeSets(true)) {
+			Assert.assertEquals(reversed, cs.collect(Collectors.toList()));
+		}
+
+		Assert.assertEquals(14, git1.totalCommits());
+	}
+
 	@Test
 	public void getBranchesFromCommit() {
 		Commit commit = git1.getCommit("a997e9d400f742003dea601bb05a9315d14d1124");
@@ -153,6 +200,26 @@ public class GitRepositoryTest {
 		Assert.assertTrue(commit.getBranches().contains("b2"));
 	}
 
+	@Test
+	public void branchesShouldMatchGitBranchContains() throws Exception {
+		for (String path : new String[] { path1, path2, path5 }) {
+			GitRepository repo = new GitRepository(path);
+			Git git = Git.open(new File(path));
+			try {
+				for (ChangeSet cs : repo.getChangeSets()) {
+					Set<String> expected = git.branchList().setContains(cs.getId()).call().stream()
+							.map(Ref::getName)
+							.map(name -> name.substring(name.lastIndexOf("/") + 1))
+							.collect(Collectors.toSet());
+
+					Assert.assertEquals(expected, repo.getCommit(cs.getId()).getBranches());
+				}
+			} finally {
+				git.close();
+			}
+		}
+	}
+
 	@Test
 	public void isCommitInMasterBranch() {
 		Assert.assertEquals("29e929fbc5dc6a2e9c620069b24e2a143af4285f", git2.getHead().getId());
@@ -187,8 +254,33 @@ public class GitRepositoryTest {
 		
 	}
 
-	
-	@Test 
+	@Test
+	public void shouldDetailCommitsOneAfterTheOther() {
+		String first = git1.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559").getModifications().get(0).getDiff();
+		String second = git1.getCommit("d11dd6734ff4e60cac3a7b58d9267f138c9e05c7").getModifications().get(0).getDiff();
+
+		Assert.assertTrue(second.startsWith("diff --git"));
+		Assert.assertFalse(second.contains(first));
+		Assert.assertEquals(first, git1.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559").getModifications().get(0).getDiff());
+	}
+
+	@Test
+	public void shouldReplaceDiffsLargerThanMaxDiff() {
+		GitRepository repo;
+		System.setProperty("git.maxdiff", "10");
+		try {
+			repo = new GitRepository(path1);
+		} finally {
+			System.clearProperty("git.maxdiff");
+		}
+
+		Commit commit = repo.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559");
+		Assert.assertEquals("Matricula.java", commit.getModifications().get(0).getNewPath());
+		Assert.assertEquals("-- TOO BIG --", commit.getModifications().get(0).getDiff());
+		Assert.assertTrue(commit.getModifications().get(0).getSourceCode().startsWith("package model;"));
+	}
+
+	@Test
 	public void mergeCommits() {
 		Commit commit = git2.getCommit("168b3aab057ed61a769acf336a4ef5e64f76c9fd");
 		Assert.assertFalse(commit.isMerge());
@@ -215,7 +307,20 @@ public class GitRepositoryTest {
 		
 	}
 	
-	@Test 
+	@Test
+	public void addedAndRemovedLinesShouldMatchTheDiff() {
+		for (GitRepository repo : new GitRepository[] { git1, git2 }) {
+			for (ChangeSet cs : repo.getChangeSets()) {
+				for (Modification m : repo.getCommit(cs.getId()).getModifications()) {
+					Modification fromDiff = new Modification(m.getOldPath(), m.getNewPath(), m.getType(), m.getDiff(), "");
+					Assert.assertEquals(cs.getId() + " " + m.getNewPath(), fromDiff.getAdded(), m.getAdded());
+					Assert.assertEquals(cs.getId() + " " + m.getNewPath(), fromDiff.getRemoved(), m.getRemoved());
+				}
+			}
+		}
+	}
+
+	@Test
 	public void shouldGetModificationStatus() {
 		
 		Commit commit = git1.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559");
@@ -273,4 +378,152 @@ public class GitRepositoryTest {
 		Assert.assertTrue(changeSets.stream().anyMatch(x -> x.getId().equals("933b2c6a6be916546d13b684d3201de6d3bc4058")));
 	}
 	
+	@Test
+	public void shouldOnlyMineRestrictedPaths() {
+		git1.restrictToPaths("pasta/*.java");
+		List<ChangeSet> changeSets = git1.getChangeSets();
+		
+		Assert.assertEquals(1, changeSets.size());
+		Assert.assertEquals("9e71dd5726d775fb4a5f08506a539216e878adbb", changeSets.get(0).getId());
+		
+		List<Modification> modifications = git1.getCommit(changeSets.get(0).getId()).getModifications();
+		Assert.assertEquals(1, modifications.size());
+		Assert.assertEquals("pasta/Capitulo.java", modifications.get(0).getNewPath());
+		
+		git1.restrictToPaths("pasta");
+		Assert.assertEquals(1, git1.getChangeSets().size());
+		
+		git1.restrictToPaths("**/**/Arquivo.java", "src/**");
+		Assert.assertEquals(2, git1.getChangeSets().size());
+	}
+
+	@Test
+	public void shouldOnlyDiffRestrictedPaths() {
+		git1.restrictToPaths("**/*.javax");
+		List<ChangeSet> changeSets = git1.getChangeSets();
+		
+		Assert.assertEquals(1, changeSets.size());
+		Assert.assertEquals("f0dd1308bd904a9b108a6a40865166ee962af3d4", changeSets.get(0).getId());
+		
+		// the old paths do not match, so the renamed files are added
+		List<Modification> modifications = git1.getCommit(changeSets.get(0).getId()).getModifications();
+		Assert.assertEquals(2, modifications.size());
+		Assert.assertTrue(modifications.stream().allMatch(m -> m.getType() == ModificationType.ADD));
+		Assert.assertTrue(modifications.stream().allMatch(m -> m.getNewPath().endsWith(".javax")));
+		
+		// a commit outside the restriction is empty
+		Assert.assertTrue(git1.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559").getModifications().isEmpty());
+	}
+	
+	@Test
+	public void shouldKeepTheFirstFilesOfHugeCommits() {
+		System.setProperty("git.maxfiles", "1");
+		try {
+			GitRepository limited = new GitRepository(path1);
+			Commit commit = limited.getCommit("f0dd1308bd904a9b108a6a40865166ee962af3d4");
+			
+			Assert.assertEquals(1, commit.getModifications().size());
+			Assert.assertEquals(2, git1.getCommit("f0dd1308bd904a9b108a6a40865166ee962af3d4").getModifications().size());
+		} finally {
+			System.clearProperty("git.maxfiles");
+		}
+	}
+
+	@Test
+	public void shouldEstimateMemoryFromTheBlobSizes() {
+		Commit commit = git1.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559");
+		long sourceSize = commit.getModifications().get(0).getSourceCode().length();
+		
+		long estimate = git1.estimateMemory(commit);
+		Assert.assertTrue(estimate > sourceSize);
+		Assert.assertTrue(estimate < 10 * sourceSize + 10 * 1024);
+	}
+
+	@Test
+	public void shouldCreateEachDeveloperOnce() {
+		Commit c1 = git1.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559");
+		Commit c2 = git1.getCommit("f0dd1308bd904a9b108a6a40865166ee962af3d4");
+		
+		Assert.assertSame(c1.getAuthor(), c2.getCommitter());
+		Assert.assertEquals(1, git1.getDevelopers().size());
+		Assert.assertEquals(0, c1.getAuthor().getId());
+	}
+
+	@Test
+	public void shouldMapDevelopersWithAMailmap() throws IOException {
+		File mailmap = File.createTempFile("mailmap", "");
+		try {
+			Files.write(mailmap.toPath(), "Mauricio <aniche@repodriller.org> <MauricioAniche@gmail.com>\n".getBytes("UTF-8"));
+			GitRepository repo = new GitRepository(path1);
+			repo.useMailmap(mailmap.getPath());
+			
+			Developer author = repo.getCommit("866e997a9e44cb4ddd9e00efe49361420aff2559").getAuthor();
+			Assert.assertEquals("Mauricio", author.getName());
+			Assert.assertEquals("aniche@repodriller.org", author.getEmail());
+		} finally {
+			mailmap.delete();
+		}
+	}
+
+	@Test
+	public void editsShouldMatchTheDiff() {
+		for (ChangeSet cs : git1.getChangeSets()) {
+			for (Modification m : git1.getCommit(cs.getId()).getModifications()) {
+				if (m.getDiff().equals("-- TOO BIG --")) continue;
+				Modification parsed = new Modification(m.getOldPath(), m.getNewPath(), m.getType(), m.getDiff(), "");
+				List<DiffEdit> edits = m.getEdits();
+				
+				Assert.assertEquals(parsed.getEdits(), edits);
+				for (int i = 0; i < edits.size(); i++) {
+					Assert.assertEquals(parsed.getEdits().get(i).getOldLines(), edits.get(i).getOldLines());
+					Assert.assertEquals(parsed.getEdits().get(i).getNewLines(), edits.get(i).getNewLines());
+				}
+				Assert.assertEquals(m.getAdded(), edits.stream().mapToInt(e -> e.getNewLines().size()).sum());
+			}
+		}
+	}
+
+	@Test
+	public void shouldParseCommitsPastTheRevWalkReset() throws Exception {
+		File dir = tmp.newFolder();
+		List<String> hashes = new ArrayList<String>();
+		Git git = Git.init().setDirectory(dir).call();
+		ObjectInserter inserter = git.getRepository().newObjectInserter();
+		try {
+			ObjectId parent = null;
+			for (int i = 0; i < 1100; i++) {
+				TreeFormatter tree = new TreeFormatter();
+				tree.append("Counter.txt", FileMode.REGULAR_FILE, inserter.insert(Constants.OBJ_BLOB, (i + "\n").getBytes("UTF-8")));
+
+				PersonIdent ident = new PersonIdent("Counter", "counter@repodriller.org", new Date(1000000000000L + i * 1000L), TimeZone.getTimeZone("UTC"));
+				CommitBuilder commit = new CommitBuilder();
+				commit.setTreeId(inserter.insert(tree));
+				if (parent != null) commit.setParentId(parent);
+				commit.setAuthor(ident);
+				commit.setCommitter(ident);
+				commit.setMessage("commit " + i);
+				parent = inserter.insert(commit);
+				hashes.add(parent.name());
+			}
+			inserter.flush();
+
+			RefUpdate master = git.getRepository().updateRef("refs/heads/master");
+			master.setNewObjectId(parent);
+			master.forceUpdate();
+		} finally {
+			inserter.release();
+			git.close();
+		}
+
+		GitRepository repo = new GitRepository(dir.getPath());
+		for (int i = 0; i < hashes.size(); i++) {
+			Commit commit = repo.getCommit(hashes.get(i));
+
+			Assert.assertEquals(hashes.get(i), commit.getHash());
+			Assert.assertEquals("commit " + i, commit.getMsg());
+			Assert.assertEquals(i == 0 ? "" : hashes.get(i - 1), commit.getParent());
+			Assert.assertEquals(1, commit.getModifications().size());
+			Assert.assertEquals(i == 0 ? 0 : 1, commit.getModifications().get(0).getRemoved());
+		}
+	}
 }
@@ -14,7 +14,11 @@ import org.tmatesoft.svn.core.SVNException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Juliano Silva
@@ -72,6 +76,22 @@ public class SubversionRepositoryTest {
         Assert.assertEquals("4", head.getId());
     }
 
+    @Test
+    public void shouldStreamCommitsInBothDirections() {
+        List<ChangeSet> all = svn.getChangeSets();
+        Assert.assertEquals(5, all.size());
+
+        try (Stream<ChangeSet> cs = svn.streamChangeSets(false)) {
+            Assert.assertEquals(all, cs.collect(Collectors.toList()));
+        }
+
+        List<ChangeSet> reversed = new ArrayList<>(all);
+        Collections.reverse(reversed);
+        try (Stream<ChangeSet> cs = svn.streamChangeSets(true)) {
+            Assert.assertEquals(reversed, cs.collect(Collectors.toList()));
+        }
+    }
+
     @Test
     public void shouldMakeUnauthenticatedGetAllCommits() {
         svn = new SubversionRepository(path);
@@ -0,0 +1,108 @@
+package org.repodriller.util;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repodriller.domain.ChangeSet;
+import org.repodriller.domain.Commit;
+import org.repodriller.domain.Modification;
+import org.repodriller.domain.ModificationType;
+import org.repodriller.scm.GitRepository;
+
+public class RepositoryGeneratorTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void shouldGenerateTheSameHistoryForTheSameSettings() throws Exception {
+		String first = new RepositoryGenerator().withCommits(30).withBranches(5, 2).generate(tmp.newFolder());
+		String second = new RepositoryGenerator().withCommits(30).withBranches(5, 2).generate(tmp.newFolder());
+		String other = new RepositoryGenerator().withSeed(7).withCommits(30).withBranches(5, 2).generate(tmp.newFolder());
+
+		Assert.assertEquals(ids(first), ids(second));
+		Assert.assertNotEquals(ids(first), ids(other));
+	}
+
+	@Test
+	public void shouldMergeTopicBranchesBack() throws Exception {
+		String path = new RepositoryGenerator().withCommits(40).withBranches(4, 3).withoutCheckout().generate(tmp.newFolder());
+		GitRepository repo = new GitRepository(path);
+
+		Assert.assertEquals(40, repo.totalCommits());
+
+		long merges = repo.getChangeSets().stream()
+				.filter(cs -> repo.getCommit(cs.getId()).isMerge())
+				.count();
+		Assert.assertTrue(merges > 0);
+
+		Git git = Git.open(new File(path));
+		try {
+			Assert.assertEquals(merges + 1, git.branchList().call().size());
+		} finally {
+			git.close();
+		}
+	}
+
+	@Test
+	public void mergesShouldJoinDivergedHistories() throws Exception {
+		String path = new RepositoryGenerator().withCommits(30).withFiles(10).withBranches(3, 2).withRenameRate(0.3)
+				.generate(tmp.newFolder());
+		GitRepository repo = new GitRepository(path);
+
+		int merges = 0;
+		Git git = Git.open(new File(path));
+		RevWalk walk = new RevWalk(git.getRepository());
+		try {
+			for (ChangeSet cs : repo.getChangeSets()) {
+				RevCommit commit = walk.parseCommit(ObjectId.fromString(cs.getId()));
+				if (commit.getParentCount() < 2) continue;
+				merges++;
+				RevCommit master = walk.parseCommit(commit.getParent(0));
+				RevCommit topic = walk.parseCommit(commit.getParent(1));
+				Assert.assertFalse(walk.isMergedInto(master, topic));
+				Assert.assertFalse(walk.isMergedInto(topic, master));
+			}
+		} finally {
+			walk.release();
+			git.close();
+		}
+		Assert.assertTrue(merges > 0);
+		Assert.assertEquals(10, repo.files().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldOnlyGenerateIntoDirectories() throws Exception {
+		new RepositoryGenerator().generate(tmp.newFile());
+	}
+
+	@Test
+	public void shouldRenameAndChangeFiles() throws Exception {
+		String path = new RepositoryGenerator().withCommits(10).withFiles(20).withFilesPerCommit(2)
+				.withRenameRate(1).withBinaryRate(0.5).generate(tmp.newFolder("repo"));
+		GitRepository repo = new GitRepository(path);
+
+		List<ChangeSet> changeSets = repo.getChangeSets();
+		Commit first = repo.getCommit(changeSets.get(changeSets.size() - 1).getId());
+		Assert.assertEquals(20, first.getModifications().size());
+		Assert.assertTrue(first.getModifications().stream().anyMatch(m -> m.getNewPath().endsWith(".bin")));
+
+		Commit last = repo.getCommit(changeSets.get(0).getId());
+		Assert.assertTrue(last.getModifications().stream().map(Modification::getType)
+				.allMatch(type -> type == ModificationType.RENAME));
+		Assert.assertEquals(20, repo.files().size());
+	}
+
+	private static List<String> ids(String path) {
+		return new GitRepository(path).getChangeSets().stream().map(ChangeSet::getId).collect(Collectors.toList());
+	}
+}